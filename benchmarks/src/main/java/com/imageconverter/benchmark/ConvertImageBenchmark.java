@@ -0,0 +1,49 @@
+package com.imageconverter.benchmark;
+
+import com.imageconverter.ImageConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the full {@link ImageConverter#convertImage(File, int)} path:
+ * decode, optional resize, WebP encode and write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertImageBenchmark {
+
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Param({"0", "400", "1200"})
+    public int shortEdgeSize;
+
+    private final ImageConverter converter = new ImageConverter();
+    private Path directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bench-convert");
+        file = SyntheticImages.write(directory, 4000, 3000, format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticImages.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public boolean convertImage() {
+        return converter.convertImage(file, shortEdgeSize);
+    }
+}
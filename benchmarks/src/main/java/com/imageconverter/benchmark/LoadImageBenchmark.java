@@ -0,0 +1,56 @@
+package com.imageconverter.benchmark;
+
+import com.imageconverter.ImageConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ImageConverter#loadImage(File)} for the supported source formats,
+ * and the subsampled decode used when the image will be resized to a 400 px short edge.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadImageBenchmark {
+
+    @Param({"jpg", "png", "bmp"})
+    public String format;
+
+    @Param({"1920x1080", "6000x4000"})
+    public String dimensions;
+
+    private final ImageConverter converter = new ImageConverter();
+    private Path directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] size = SyntheticImages.parseDimensions(dimensions);
+        directory = Files.createTempDirectory("bench-load");
+        file = SyntheticImages.write(directory, size[0], size[1], format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticImages.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public BufferedImage loadImage() {
+        return converter.loadImage(file);
+    }
+
+    @Benchmark
+    public BufferedImage loadImageForThumbnail() {
+        return converter.loadImage(file, 400);
+    }
+}
@@ -0,0 +1,41 @@
+package com.imageconverter.benchmark;
+
+import com.imageconverter.ImageConverter;
+import com.imageconverter.ResizeMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ImageConverter#resizeByShortEdge(BufferedImage, int)} from a 6000x4000 source
+ * (TYPE_3BYTE_BGR, as produced by the JPEG decoder) to several target sizes with each resize mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResizeBenchmark {
+
+    @Param({"200", "800", "2000"})
+    public int shortEdgeSize;
+
+    @Param({"SINGLE_PASS", "PROGRESSIVE", "LANCZOS3", "MITCHELL", "BILINEAR", "BOX"})
+    public ResizeMode mode;
+
+    private final ImageConverter converter = new ImageConverter();
+    private BufferedImage source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter.setResizeMode(mode);
+        source = SyntheticImages.create(6000, 4000, BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    @Benchmark
+    public BufferedImage resizeByShortEdge() {
+        return converter.resizeByShortEdge(source, shortEdgeSize);
+    }
+}
@@ -0,0 +1,49 @@
+package com.imageconverter.benchmark;
+
+import com.imageconverter.ImageConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ImageConverter#saveAsWebP(BufferedImage, File)} at several image dimensions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveAsWebPBenchmark {
+
+    @Param({"320x240", "1280x720", "1920x1080", "4000x3000"})
+    public String dimensions;
+
+    private final ImageConverter converter = new ImageConverter();
+    private Path directory;
+    private BufferedImage image;
+    private File outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] size = SyntheticImages.parseDimensions(dimensions);
+        directory = Files.createTempDirectory("bench-webp");
+        image = SyntheticImages.create(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+        outputFile = directory.resolve("output.webp").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticImages.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public boolean saveAsWebP() {
+        return converter.saveAsWebP(image, outputFile);
+    }
+}
@@ -0,0 +1,104 @@
+package com.imageconverter.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates deterministic photo-like test images so benchmarks need no external data.
+ * Images combine gradients, shapes and noise so that decoders and encoders do realistic work.
+ */
+final class SyntheticImages {
+    private static final long SEED = 42L;
+
+    private SyntheticImages() {
+    }
+
+    /**
+     * Create a synthetic image.
+     *
+     * @param width image width
+     * @param height image height
+     * @param type BufferedImage type, e.g. TYPE_3BYTE_BGR as produced by the JPEG decoder
+     * @return generated image
+     */
+    static BufferedImage create(int width, int height, int type) {
+        Random random = new Random(SEED);
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        g2d.setPaint(new GradientPaint(0, 0, new Color(30, 90, 160), width, height, new Color(220, 180, 90)));
+        g2d.fillRect(0, 0, width, height);
+
+        int shapes = 40;
+        for (int i = 0; i < shapes; i++) {
+            g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 160));
+            int w = width / 8 + random.nextInt(width / 4);
+            int h = height / 8 + random.nextInt(height / 4);
+            g2d.fillOval(random.nextInt(width), random.nextInt(height), w, h);
+        }
+        g2d.dispose();
+
+        // Fine-grained noise keeps the image from compressing unrealistically well
+        for (int y = 0; y < height; y += 2) {
+            for (int x = 0; x < width; x += 2) {
+                int rgb = image.getRGB(x, y);
+                int delta = random.nextInt(17) - 8;
+                int r = clamp(((rgb >> 16) & 0xFF) + delta);
+                int g = clamp(((rgb >> 8) & 0xFF) + delta);
+                int b = clamp((rgb & 0xFF) + delta);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Write a synthetic image to a file.
+     *
+     * @param directory target directory
+     * @param width image width
+     * @param height image height
+     * @param format ImageIO format name ("jpg", "png" or "bmp")
+     * @return the written file
+     */
+    static File write(Path directory, int width, int height, String format) throws IOException {
+        File file = directory.resolve(String.format("synthetic-%dx%d.%s", width, height, format)).toFile();
+        if (!ImageIO.write(create(width, height, BufferedImage.TYPE_INT_RGB), format, file)) {
+            throw new IOException("No ImageIO writer for format " + format);
+        }
+        return file;
+    }
+
+    /**
+     * Parse a "WIDTHxHEIGHT" benchmark parameter.
+     */
+    static int[] parseDimensions(String dimensions) {
+        String[] parts = dimensions.split("x");
+        return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * Delete a temporary benchmark directory and its contents.
+     */
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
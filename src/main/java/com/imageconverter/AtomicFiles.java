@@ -0,0 +1,216 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes outputs so that they appear complete or not at all.
+ * Data goes to a hidden temporary file in the target's directory, which is then renamed
+ * over the target in one atomic step. A process that is killed or crashes mid-write leaves
+ * only the temporary file, never a truncated output.
+ *
+ * <p>Temporary files are named {@code .<target>.<pid>.<random>.image-converter-tmp}.
+ * {@link #deleteIfStale} removes those of processes that are no longer running;
+ * {@link #sweepStale} does so for a whole directory as a conversion starts.
+ */
+public final class AtomicFiles {
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFiles.class);
+
+    /** Suffix of temporary output files. */
+    public static final String TEMP_SUFFIX = ".image-converter-tmp";
+
+    /** A temporary file is left alone this long, e.g. when written from another machine on a share. */
+    private static final long MIN_STALE_AGE_MILLIS = 60_000;
+    /** Older temporary files are removed even if their process id belongs to a running process. */
+    private static final long ABANDONED_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final long PID = ProcessHandle.current().pid();
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Choose a new temporary file next to a target. The file is not created.
+     *
+     * @param target the final file
+     * @return path of the temporary file
+     * @throws IOException if the target's directory cannot be created
+     */
+    public static Path newTempFile(File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        String name = "." + target.getName() + "." + PID + "."
+            + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + TEMP_SUFFIX;
+        return new File(directory, name).toPath();
+    }
+
+    /**
+     * Write a file atomically, replacing an existing one.
+     *
+     * @param target the file to write
+     * @param data the content
+     * @throws IOException if writing fails; the target is then unchanged
+     */
+    public static void write(File target, byte[] data) throws IOException {
+        write(target, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Write a file atomically, replacing an existing one. The content is handed to the
+     * file channel as a whole, normally a single write system call, instead of the small
+     * chunked writes of a stream.
+     *
+     * @param target the file to write
+     * @param data the content, from its position to its limit
+     * @throws IOException if writing fails; the target is then unchanged
+     */
+    public static void write(File target, ByteBuffer data) throws IOException {
+        Path temp = newTempFile(target);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            commit(temp, target);
+        } catch (IOException | RuntimeException e) {
+            discard(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Move a completely written temporary file over its target.
+     *
+     * @param temp the temporary file
+     * @param target the final file
+     * @throws IOException if the move fails
+     */
+    public static void commit(Path temp, File target) throws IOException {
+        try {
+            Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Same directory, so only exotic file systems end up here
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete a temporary file after a failed write.
+     *
+     * @param temp the temporary file
+     */
+    public static void discard(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary file {}", temp, e);
+        }
+    }
+
+    /**
+     * @param path a file
+     * @return true if the file is a temporary output file
+     */
+    public static boolean isTempFile(Path path) {
+        return path.getFileName().toString().endsWith(TEMP_SUFFIX);
+    }
+
+    /**
+     * Delete a temporary file left behind by a process that is no longer running.
+     *
+     * @param temp a temporary output file
+     * @return true if the file was deleted
+     */
+    public static boolean deleteIfStale(Path temp) {
+        try {
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(temp).toMillis();
+            if (age < MIN_STALE_AGE_MILLIS) {
+                return false;
+            }
+            if (age < ABANDONED_AGE_MILLIS) {
+                long owner = ownerOf(temp);
+                if (owner == PID || (owner > 0 && ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false))) {
+                    return false;
+                }
+            }
+            Files.delete(temp);
+            logger.info("Removed stale temporary file {}", temp);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.warn("Could not remove stale temporary file {}", temp, e);
+            return false;
+        }
+    }
+
+    /**
+     * Delete the stale temporary files in a directory. Called when a conversion or watch
+     * starts, never while only listing a directory.
+     *
+     * @param directory the directory
+     * @param recursive true to include subdirectories; symbolic links are not followed
+     * @return number of files deleted
+     */
+    public static int sweepStale(File directory, boolean recursive) {
+        AtomicInteger removed = new AtomicInteger();
+        try {
+            Files.walkFileTree(directory.toPath(), Collections.emptySet(), recursive ? Integer.MAX_VALUE : 1,
+                               new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && isTempFile(file) && deleteIfStale(file)) {
+                        removed.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.debug("Could not check {} for temporary files", file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not look for stale temporary files in {}", directory, e);
+        }
+        if (removed.get() > 0) {
+            logger.info("Removed {} stale temporary file(s) from {}", removed.get(), directory);
+        }
+        return removed.get();
+    }
+
+    /**
+     * @return process id encoded in a temporary file name, or -1 if there is none
+     */
+    private static long ownerOf(Path temp) {
+        String name = temp.getFileName().toString();
+        String[] parts = name.substring(0, name.length() - TEMP_SUFFIX.length()).split("\\.");
+        if (parts.length < 3) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(parts[parts.length - 2]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
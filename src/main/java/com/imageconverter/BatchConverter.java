@@ -0,0 +1,301 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parallel batch conversion engine.
+ * Runs a bounded pool of worker threads, each pulling the next file from the batch
+ * and converting it with a shared {@link ImageConverter}.
+ */
+public class BatchConverter implements ConversionEngine {
+    private static final Logger logger = LoggerFactory.getLogger(BatchConverter.class);
+
+    private final ImageConverter converter;
+    private final int threadCount;
+    private final PauseGate pauseGate = new PauseGate();
+    private volatile boolean cancelled;
+
+    /**
+     * Create a batch converter using one worker per available processor.
+     */
+    public BatchConverter() {
+        this(defaultThreadCount());
+    }
+
+    /**
+     * Create a batch converter with a fixed number of worker threads.
+     *
+     * @param threadCount number of worker threads (values below 1 are treated as 1)
+     */
+    public BatchConverter(int threadCount) {
+        this(threadCount, new ImageConverter());
+    }
+
+    /**
+     * Create a batch converter with a fixed number of worker threads and a configured converter.
+     *
+     * @param threadCount number of worker threads (values below 1 are treated as 1)
+     * @param converter converter shared by all workers
+     */
+    public BatchConverter(int threadCount, ImageConverter converter) {
+        this.converter = converter;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Default number of worker threads.
+     *
+     * @return number of available processors
+     */
+    public static int defaultThreadCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    @Override
+    public ConversionResult convert(FileFeed feed, int shortEdgeSize, ConversionListener listener) {
+        int knownSize = feed.getKnownSize();
+        int workers = knownSize < 0 ? threadCount : Math.min(threadCount, Math.max(1, knownSize));
+        if (knownSize < 0) {
+            logger.info("Starting parallel conversion of a streamed batch with {} worker(s)", workers);
+        } else {
+            logger.info("Starting parallel conversion of {} files with {} worker(s)", knownSize, workers);
+        }
+
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failCount = new AtomicInteger();
+        AtomicInteger skippedCount = new AtomicInteger();
+        UpToDateChecker upToDate = converter.createUpToDateChecker(shortEdgeSize);
+        MemoryBudget budget = converter.getMemoryBudget();
+        DiskSpaceLedger ledger = converter.getDiskSpaceLedger();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        LongAdder totalSaved = new LongAdder();
+        ConversionMetrics metrics = new ConversionMetrics();
+        converter.setMetrics(metrics);
+        metrics.start();
+        ConversionMonitor monitor = new ConversionMonitor("batch", this, pauseGate, feed, metrics, ledger, null, listener);
+        // With fewer files left than cores, per-file parallelism leaves cores idle: split each resize
+        // instead. Decided per file, a streamed feed only learns its size when the scan ends
+        int cores = defaultThreadCount();
+        converter.setParallelResize(() -> monitor.isRemainingBelow(cores, 0));
+        monitor.start();
+
+        Runnable worker = () -> {
+            File file;
+            while ((file = nextFile(feed)) != null) {
+                if (upToDate != null && upToDate.shouldSkip(file)) {
+                    skippedCount.incrementAndGet();
+                    logger.debug("Skipping up-to-date file: {}", file);
+                    ConversionEvents.skipped(file);
+                    monitor.fileSkipped(file);
+                    continue;
+                }
+
+                // Wait here while the output volume is nearly full, then until the
+                // decoded pixels fit the memory budget
+                ImageInfo info = ImageInfo.read(file);
+                File outputFile = ImageConverter.getOutputFile(file);
+                long expectedOutput = info != null
+                    ? converter.estimateOutputSize(file, info, shortEdgeSize) : ImageConverter.estimateOutputSize(file);
+                if (!reserveSpace(ledger, outputFile, expectedOutput)) {
+                    break;
+                }
+                long reserved = info != null ? converter.estimateMemoryBytes(info, shortEdgeSize) : 0;
+                if (!reserve(budget, reserved)) {
+                    ledger.release(outputFile, expectedOutput, 0);
+                    break;
+                }
+
+                monitor.fileStarted(file);
+                UpToDateChecker.SourceState sourceState = upToDate != null ? upToDate.captureSource(file) : null;
+                // Stat the source once; its size travels on to the decoder and the metrics
+                long sourceSize = sourceState != null ? sourceState.getSize() : file.length();
+                long written = -1;
+                try {
+                    written = convertFile(file, sourceSize, shortEdgeSize, errors, totalSaved);
+                } finally {
+                    if (reserved > 0) {
+                        budget.release(reserved);
+                    }
+                    ledger.release(outputFile, expectedOutput, Math.max(0, written));
+                }
+                boolean success = written >= 0;
+                if (success) {
+                    successCount.incrementAndGet();
+                } else {
+                    failCount.incrementAndGet();
+                }
+                if (upToDate != null) {
+                    if (success) {
+                        upToDate.recordConverted(file, sourceState, written);
+                    } else {
+                        upToDate.recordFailed(file);
+                    }
+                }
+                monitor.fileFinished(file, success);
+            }
+        };
+
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int t = 0; t < workers; t++) {
+            Thread thread = new Thread(worker, "converter-worker-" + (t + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                // Stop handing out new files; workers finish the file they are on
+                logger.info("Batch conversion interrupted, cancelling remaining files");
+                cancel();
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (cancelled) {
+            logger.info("Batch conversion was cancelled");
+        }
+        // Files converted before a cancellation are up to date as well
+        if (upToDate != null) {
+            upToDate.save();
+        }
+        metrics.finish();
+        converter.setParallelResize(false);
+        // Learned compression ratios are kept even if the batch was cancelled
+        converter.getOutputSizeModel().save();
+        monitor.stop();
+        logger.info("Parallel conversion finished: {} successful, {} failed, {} skipped, {} resized in parallel bands",
+                   successCount.get(), failCount.get(), skippedCount.get(), metrics.getParallelResizes());
+
+        return new ConversionResult(successCount.get(), failCount.get(), skippedCount.get(),
+                                    new ArrayList<>(errors), totalSaved.sum(), metrics);
+    }
+
+    /**
+     * Reserve memory for a file, waiting while the budget is exhausted.
+     *
+     * @return false if the batch was cancelled while waiting
+     */
+    private boolean reserve(MemoryBudget budget, long bytes) {
+        if (bytes <= 0) {
+            return true;
+        }
+        try {
+            return budget.acquire(bytes, () -> cancelled);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Reserve disk space for an output, waiting while its volume is nearly full.
+     *
+     * @return false if the batch was cancelled while waiting
+     */
+    private boolean reserveSpace(DiskSpaceLedger ledger, File outputFile, long bytes) {
+        try {
+            return ledger.reserve(outputFile, bytes, () -> cancelled);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Take the next file from the feed.
+     *
+     * @return the file, or null when the feed is exhausted or the batch was cancelled
+     */
+    private File nextFile(FileFeed feed) {
+        if (cancelled) {
+            return null;
+        }
+        try {
+            // Paused engines leave the remaining files on the feed
+            if (!pauseGate.await(() -> cancelled)) {
+                return null;
+            }
+            return feed.next(() -> cancelled);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void pause() {
+        pauseGate.pause();
+    }
+
+    @Override
+    public void resume() {
+        pauseGate.resume();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return pauseGate.isPaused();
+    }
+
+    @Override
+    public DiskSpaceLedger getDiskSpaceLedger() {
+        return converter.getDiskSpaceLedger();
+    }
+
+    /**
+     * Convert a single file and record its outcome.
+     *
+     * @param originalSize size of the source file
+     * @return size of the written WebP file, or -1 if the conversion failed
+     */
+    private long convertFile(File file, long originalSize, int shortEdgeSize, List<String> errors,
+                             LongAdder totalSaved) {
+        try {
+            long written = converter.convert(file, shortEdgeSize, originalSize);
+
+            if (written >= 0) {
+                // Calculate space saved
+                totalSaved.add(originalSize - written);
+                logger.debug("Successfully converted: {}", file);
+            } else {
+                String errorMsg = "Failed to convert: " + file.getName();
+                errors.add(errorMsg);
+                ConversionEvents.failed(file, errorMsg);
+                logger.error(errorMsg);
+            }
+            return written;
+        } catch (Exception e) {
+            String errorMsg = file.getName() + ": " + e.getMessage();
+            errors.add(errorMsg);
+            ConversionEvents.failed(file, errorMsg);
+            logger.error("Exception during conversion of {}", file.getName(), e);
+            return -1;
+        }
+    }
+}
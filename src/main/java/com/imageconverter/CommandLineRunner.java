@@ -0,0 +1,765 @@
+package com.imageconverter;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless command-line batch mode.
+ * Drives the same conversion engines as the GUI without initializing JavaFX,
+ * so it can run on servers without a display and be scripted from cron.
+ */
+public class CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CommandLineRunner.class);
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURES = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_INSUFFICIENT_SPACE = 3;
+
+    /** How long Ctrl+C waits for the files in flight and the manifests to be saved. */
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private static final String USAGE =
+        "Usage: java -jar image-converter.jar --cli <directory> [options]\n" +
+        "\n" +
+        "Options:\n" +
+        "  --recursive              also convert images in subdirectories\n" +
+        "  --include <glob>         only convert images matching the pattern (repeatable);\n" +
+        "                           patterns without '/' match file names, others the\n" +
+        "                           path relative to the directory\n" +
+        "  --exclude <glob>         skip images and directories matching the pattern (repeatable)\n" +
+        "  --short-edge <pixels>    resize so the shorter edge has this size (default: no resize)\n" +
+        "  --resize-mode <mode>     single-pass (default), progressive, lanczos3, mitchell,\n" +
+        "                           bilinear or box\n" +
+        "  --threads <n>            worker threads (default: number of processors)\n" +
+        "  --pipeline               use the staged decode/resize/encode/write pipeline\n" +
+        "  --queue-depth <n>        pipeline hand-off queue depth\n" +
+        "  --decode-threads <n>     pipeline decode threads\n" +
+        "  --resize-threads <n>     pipeline resize threads\n" +
+        "  --encode-threads <n>     pipeline encode threads\n" +
+        "  --write-threads <n>      pipeline write threads\n" +
+        "  --memory-budget <MB>     memory for images in flight (default: 60% of max heap);\n" +
+        "                           larger images wait, or run alone if above the budget\n" +
+        "  --min-free-space <MB>    pause while the output volume has less free space than\n" +
+        "                           this and resume when space is freed (default: 512)\n" +
+        "  --no-subsampling         always decode sources at full resolution\n" +
+        "  --incremental            skip files whose WebP output is up to date\n" +
+        "  --force                  convert every file, even with --incremental\n" +
+        "  --watch                  keep running and convert images added to or changed in\n" +
+        "                           the directory (hot folder) until interrupted\n" +
+        "  --settle <ms>            time a watched file must stay unchanged before it is\n" +
+        "                           converted (default: 2000)\n" +
+        "  --dry-run                only plan the batch: read the image headers and predict\n" +
+        "                           the output size and duration from rates measured by\n" +
+        "                           converting a few of the images in memory\n" +
+        "  --skip-space-check       do not check free disk space before converting; by default\n" +
+        "                           the images of the first directory found are checked, and\n" +
+        "                           conversion starts while the rest is still being scanned\n" +
+        "  --jfr <file>             record a Java Flight Recording with the conversion stage\n" +
+        "                           events to the file\n" +
+        "  --verbose                also print the detailed log to the console\n" +
+        "  --help                   show this help\n" +
+        "\n" +
+        "Exit codes: 0 = all files converted, 1 = some files failed,\n" +
+        "            2 = invalid arguments, 3 = insufficient disk space";
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Options
+    private File directory;
+    private boolean recursive;
+    private final List<String> includeGlobs = new ArrayList<>();
+    private final List<String> excludeGlobs = new ArrayList<>();
+    private int shortEdgeSize;
+    private ResizeMode resizeMode = ResizeMode.SINGLE_PASS;
+    private int threads = BatchConverter.defaultThreadCount();
+    private boolean pipeline;
+    private Integer queueDepth;
+    private Integer decodeThreads;
+    private Integer resizeThreads;
+    private Integer encodeThreads;
+    private Integer writeThreads;
+    private boolean subsampledDecode = true;
+    private boolean incremental;
+    private boolean forceRebuild;
+    private boolean skipSpaceCheck;
+    private boolean dryRun;
+    private boolean watch;
+    private long settleMillis = HotFolderWatcher.DEFAULT_SETTLE_MILLIS;
+    private File jfrFile;
+
+    public CommandLineRunner(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Check whether the arguments request command-line mode.
+     *
+     * @param args program arguments
+     * @return true if "--cli" is present
+     */
+    public static boolean isCommandLineMode(String[] args) {
+        return Arrays.asList(args).contains("--cli");
+    }
+
+    /**
+     * Parse the arguments and run the batch.
+     *
+     * @param args program arguments
+     * @return process exit code
+     */
+    public int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (!Arrays.asList(args).contains("--verbose")) {
+            detachConsoleLogging();
+        }
+
+        try {
+            if (!parseArguments(args)) {
+                out.println(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.println();
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        Recording recording = null;
+        if (jfrFile != null) {
+            recording = startRecording();
+            if (recording == null) {
+                return EXIT_USAGE;
+            }
+        }
+        try {
+            return execute();
+        } finally {
+            if (recording != null) {
+                stopRecording(recording);
+            }
+        }
+    }
+
+    /**
+     * Run the batch, the watch or the dry run the arguments asked for.
+     *
+     * @return process exit code
+     */
+    private int execute() {
+        if (watch) {
+            return runWatch();
+        }
+
+        DirectoryScanner scanner;
+        try {
+            scanner = new DirectoryScanner(directory, recursive, includeGlobs, excludeGlobs);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: invalid pattern: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        if (dryRun) {
+            return runDryRun(scanner);
+        }
+
+        // Stream files to the engine while the scan is still running
+        FileFeed feed = new FileFeed();
+        CompletableFuture<List<File>> firstFiles = new CompletableFuture<>();
+        Thread scanThread = new Thread(() -> {
+            try {
+                scanner.scan(files -> {
+                    feed.addAll(files);
+                    firstFiles.complete(files);
+                });
+            } finally {
+                feed.close();
+                firstFiles.complete(Collections.emptyList());
+            }
+            // Clean up after interrupted runs while the engine converts
+            if (!scanner.isCancelled()) {
+                AtomicFiles.sweepStale(directory, recursive);
+            }
+        }, "directory-scanner");
+        scanThread.setDaemon(true);
+        scanThread.start();
+
+        List<File> sample = firstFiles.join();
+        if (sample.isEmpty()) {
+            out.println("No images found in " + directory.getAbsolutePath());
+            return EXIT_OK;
+        }
+        if (!skipSpaceCheck) {
+            // Check the first directory found rather than wait for the whole scan; while
+            // converting, the disk space ledger pauses if the volume runs low after all
+            DiskSpaceValidator.ValidationResult validation =
+                new DiskSpaceValidator().validateDiskSpace(sample, directory, createConverter(), shortEdgeSize);
+            if (!validation.isValid()) {
+                scanner.cancel();
+                err.println(validation.getMessage());
+                return EXIT_INSUFFICIENT_SPACE;
+            }
+        }
+        out.printf("Converting images in %s while scanning%n", directory.getAbsolutePath());
+
+        ConversionEngine engine = createEngine();
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            scanner.cancel();
+            engine.cancel();
+            awaitFinished(finished);
+        }, "cli-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        ProgressPrinter progress = new ProgressPrinter(feed);
+        DiskSpaceLedger.Listener spaceReporter = spaceReporter();
+        DiskSpaceLedger.shared().addListener(spaceReporter);
+        long startTime = System.nanoTime();
+        ConversionResult result;
+        try {
+            result = engine.convert(feed, shortEdgeSize, progress);
+        } finally {
+            finished.countDown();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        DiskSpaceLedger.shared().removeListener(spaceReporter);
+        try {
+            // Let the temporary file sweep finish before the process exits
+            scanThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+        }
+
+        printSummary(result, seconds);
+        if (engine instanceof PipelineConverter) {
+            out.println("Pipeline stages:");
+            for (PipelineConverter.StageStats stats : ((PipelineConverter) engine).getLastStageStats()) {
+                out.println("  " + stats);
+            }
+        }
+
+        return result.getFailCount() > 0 || engine.isCancelled() ? EXIT_FAILURES : EXIT_OK;
+    }
+
+    /**
+     * Parse the arguments into fields.
+     *
+     * @return false if help was requested
+     */
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help":
+                case "-h":
+                    return false;
+                case "--cli":
+                    directory = new File(requireValue(args, ++i, arg));
+                    break;
+                case "--recursive":
+                    recursive = true;
+                    break;
+                case "--include":
+                    includeGlobs.add(requireValue(args, ++i, arg));
+                    break;
+                case "--exclude":
+                    excludeGlobs.add(requireValue(args, ++i, arg));
+                    break;
+                case "--short-edge":
+                    shortEdgeSize = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--resize-mode":
+                    resizeMode = parseResizeMode(requireValue(args, ++i, arg));
+                    break;
+                case "--threads":
+                    threads = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--pipeline":
+                    pipeline = true;
+                    break;
+                case "--queue-depth":
+                    queueDepth = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--decode-threads":
+                    decodeThreads = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--resize-threads":
+                    resizeThreads = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--encode-threads":
+                    encodeThreads = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--write-threads":
+                    writeThreads = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--memory-budget":
+                    MemoryBudget.configureShared(parsePositive(requireValue(args, ++i, arg), arg) * 1024L * 1024L);
+                    break;
+                case "--min-free-space":
+                    DiskSpaceLedger.configureShared(parsePositive(requireValue(args, ++i, arg), arg) * 1024L * 1024L);
+                    break;
+                case "--no-subsampling":
+                    subsampledDecode = false;
+                    break;
+                case "--incremental":
+                    incremental = true;
+                    break;
+                case "--force":
+                    forceRebuild = true;
+                    break;
+                case "--watch":
+                    watch = true;
+                    break;
+                case "--settle":
+                    settleMillis = parsePositive(requireValue(args, ++i, arg), arg);
+                    break;
+                case "--skip-space-check":
+                    skipSpaceCheck = true;
+                    break;
+                case "--dry-run":
+                    dryRun = true;
+                    break;
+                case "--jfr":
+                    jfrFile = new File(requireValue(args, ++i, arg));
+                    break;
+                case "--verbose":
+                    // Console logging is configured before parsing
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (directory == null) {
+            throw new IllegalArgumentException("No directory given");
+        }
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + directory.getAbsolutePath());
+        }
+        if (watch && dryRun) {
+            throw new IllegalArgumentException("--dry-run cannot be combined with --watch");
+        }
+        if (watch && (!includeGlobs.isEmpty() || !excludeGlobs.isEmpty())) {
+            throw new IllegalArgumentException("--include and --exclude cannot be combined with --watch");
+        }
+        return true;
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length || args[index].startsWith("--")) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int parsePositive(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number <= 0) {
+                throw new IllegalArgumentException(option + " must be a positive number");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    private static ResizeMode parseResizeMode(String value) {
+        try {
+            return ResizeMode.fromName(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown resize mode: " + value);
+        }
+    }
+
+    /**
+     * Watch the directory and convert settled files until the process is interrupted.
+     * A status line with queue depth and throughput is printed every 10 seconds while busy.
+     */
+    private int runWatch() {
+        // Existing images are not converted, only temporary files of interrupted runs removed
+        AtomicFiles.sweepStale(directory, recursive);
+
+        HotFolderWatcher watcher = new HotFolderWatcher(directory, recursive, settleMillis);
+        FileFeed feed = new FileFeed();
+        ConversionEngine engine = createEngine();
+        ThroughputCounter counter = new ThroughputCounter(new ConversionListener() {
+            @Override
+            public void fileStarted(File file) {
+            }
+
+            @Override
+            public void fileFinished(File file, boolean success) {
+                out.printf("  %s %s%n", success ? "converted" : "FAILED   ", file.getPath());
+            }
+
+            @Override
+            public void fileSkipped(File file) {
+                out.printf("  skipped   %s%n", file.getPath());
+            }
+        });
+
+        DiskSpaceLedger.shared().addListener(spaceReporter());
+        try {
+            watcher.start(feed::addAll);
+        } catch (IOException e) {
+            err.println("Error: cannot watch " + directory.getAbsolutePath() + ": " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        out.printf("Watching %s for new images (Ctrl+C to stop)%n", directory.getAbsolutePath());
+
+        ScheduledExecutorService statusTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "watch-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        statusTimer.scheduleAtFixedRate(() -> {
+            double rate = counter.sampleRate();
+            int settling = watcher.getSettlingCount();
+            int queued = feed.getQueuedCount();
+            if (rate > 0 || settling > 0 || queued > 0 || counter.getInProgress() > 0) {
+                out.printf("[watch] settling=%d queued=%d converting=%d | converted=%d failed=%d skipped=%d | %.1f images/s%n",
+                           settling, queued, counter.getInProgress(), counter.getConverted(),
+                           counter.getFailed(), counter.getSkipped(), rate);
+            }
+        }, 10, 10, TimeUnit.SECONDS);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            watcher.stop();
+            feed.close();
+            engine.cancel();
+            awaitFinished(finished);
+        }, "cli-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        long startTime = System.nanoTime();
+        ConversionResult result;
+        try {
+            result = engine.convert(feed, shortEdgeSize, counter);
+        } finally {
+            finished.countDown();
+        }
+        statusTimer.shutdownNow();
+        printSummary(result, (System.nanoTime() - startTime) / 1_000_000_000.0);
+        return result.getFailCount() > 0 ? EXIT_FAILURES : EXIT_OK;
+    }
+
+    /**
+     * Keep the JVM from exiting until a cancelled conversion has completed its files in flight
+     * and saved its manifests, or {@value #SHUTDOWN_WAIT_SECONDS} seconds have passed.
+     */
+    private static void awaitFinished(CountDownLatch finished) {
+        try {
+            if (!finished.await(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Conversion did not stop within {} seconds, exiting anyway", SHUTDOWN_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start a flight recording with the JDK's default settings plus the conversion events
+     * enabled by the bundled {@link ConversionEvents#CONFIGURATION}. The recording is also
+     * written if the JVM exits early, e.g. when a watch is stopped with Ctrl+C.
+     *
+     * @return the running recording, or null if it could not be started
+     */
+    private Recording startRecording() {
+        try (InputStream in = CommandLineRunner.class.getResourceAsStream(ConversionEvents.CONFIGURATION)) {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            if (in != null) {
+                settings.putAll(Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8)).getSettings());
+            } else {
+                logger.warn("JFR configuration {} not found, recording with default settings",
+                           ConversionEvents.CONFIGURATION);
+            }
+            Recording recording = new Recording(settings);
+            recording.setName("image-converter");
+            recording.setDestination(jfrFile.toPath());
+            recording.setDumpOnExit(true);
+            recording.start();
+            logger.info("Started flight recording to {}", jfrFile.getAbsolutePath());
+            return recording;
+        } catch (IOException | ParseException | RuntimeException e) {
+            err.println("Error: cannot start flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void stopRecording(Recording recording) {
+        try {
+            recording.stop();
+            out.println("Flight recording written to " + jfrFile.getAbsolutePath());
+        } catch (RuntimeException e) {
+            err.println("Error: cannot write flight recording: " + e.getMessage());
+        } finally {
+            recording.close();
+        }
+    }
+
+    /**
+     * Plan the batch without converting it and print the prediction.
+     */
+    private int runDryRun(DirectoryScanner scanner) {
+        List<File> files = scanner.scanAll();
+        if (files.isEmpty()) {
+            out.println("No images found in " + directory.getAbsolutePath());
+            return EXIT_OK;
+        }
+        out.printf("Planning %d image(s) in %s%n", files.size(), directory.getAbsolutePath());
+
+        ConversionPlanner planner = new ConversionPlanner(createConverter(), shortEdgeSize, threads);
+        Thread shutdownHook = new Thread(() -> {
+            scanner.cancel();
+            planner.cancel();
+        }, "cli-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        ConversionPlan plan = planner.plan(files);
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+        }
+
+        int toConvert = plan.getFileCount() - plan.getUpToDateCount() - plan.getUnreadableCount();
+        out.println();
+        out.println("Files to convert:       " + toConvert);
+        if (plan.getUpToDateCount() > 0) {
+            out.println("Up to date (skipped):   " + plan.getUpToDateCount());
+        }
+        if (plan.getUnreadableCount() > 0) {
+            out.println("Unreadable headers:     " + plan.getUnreadableCount());
+        }
+        StringBuilder formats = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : plan.getFormatCounts().entrySet()) {
+            formats.append(formats.length() > 0 ? ", " : "").append(entry.getValue()).append(' ').append(entry.getKey());
+        }
+        out.println("Formats:                " + formats);
+        out.println("Input size:             " + Formats.formatBytes(plan.getInputBytes()));
+        out.printf("Pixels:                 %.1f MP source, %.1f MP decoded, %.1f MP output%n",
+                   plan.getSourcePixels() / 1e6, plan.getDecodedPixels() / 1e6, plan.getOutputPixels() / 1e6);
+        out.println("Predicted output size:  " + Formats.formatBytes(plan.getPredictedOutputBytes())
+                    + (plan.getSampleCount() > 0 ? "" : " (learned ratios only, no image could be sampled)"));
+        if (plan.getEstimatedSeconds() >= 0) {
+            String resize = plan.getResizeRate() > 0 ? String.format(", resize %.1f MP/s", plan.getResizeRate()) : "";
+            out.printf("Measured rates:         decode %.1f MP/s%s, encode %.1f MP/s per thread (%d sample(s))%n",
+                       plan.getDecodeRate(), resize, plan.getEncodeRate(), plan.getSampleCount());
+            out.println("Estimated duration:     " + Formats.formatDuration(plan.getEstimatedSeconds()));
+        }
+
+        long available = directory.getUsableSpace();
+        out.println("Free disk space:        " + Formats.formatBytes(available));
+        if (plan.getPredictedOutputBytes() > available) {
+            err.println("Insufficient disk space for the predicted output");
+            return EXIT_INSUFFICIENT_SPACE;
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Listener printing when conversion pauses for lack of disk space and when it resumes.
+     */
+    private DiskSpaceLedger.Listener spaceReporter() {
+        return new DiskSpaceLedger.Listener() {
+            @Override
+            public void paused(String volume, long usableBytes, long minFreeBytes) {
+                out.printf("Paused: only %s free on %s (keeping %s), waiting for disk space%n",
+                           Formats.formatBytes(usableBytes), volume, Formats.formatBytes(minFreeBytes));
+            }
+
+            @Override
+            public void resumed(String volume) {
+                out.printf("Resumed: disk space available on %s%n", volume);
+            }
+        };
+    }
+
+    private ImageConverter createConverter() {
+        ImageConverter converter = new ImageConverter();
+        converter.setSubsampledDecode(subsampledDecode);
+        converter.setResizeMode(resizeMode);
+        converter.setIncremental(incremental);
+        converter.setForceRebuild(forceRebuild);
+        return converter;
+    }
+
+    private ConversionEngine createEngine() {
+        ImageConverter converter = createConverter();
+
+        if (!pipeline) {
+            return new BatchConverter(threads, converter);
+        }
+        PipelineConfig defaults = PipelineConfig.forThreads(threads);
+        PipelineConfig config = new PipelineConfig(
+            queueDepth != null ? queueDepth : defaults.getQueueDepth(),
+            decodeThreads != null ? decodeThreads : defaults.getDecodeThreads(),
+            resizeThreads != null ? resizeThreads : defaults.getResizeThreads(),
+            encodeThreads != null ? encodeThreads : defaults.getEncodeThreads(),
+            writeThreads != null ? writeThreads : defaults.getWriteThreads()
+        );
+        return new PipelineConverter(config, converter);
+    }
+
+    private void printSummary(ConversionResult result, double seconds) {
+        out.println();
+        // Includes the files skipped as up to date, listed separately below
+        out.println("Total files:            " + result.getTotalCount());
+        out.println("Successfully converted: " + result.getSuccessCount());
+        out.println("Failed:                 " + result.getFailCount());
+        if (result.getSkippedCount() > 0) {
+            out.println("Skipped (up to date):   " + result.getSkippedCount());
+        }
+        out.println("Space saved:            " + Formats.formatBytes(result.getSpaceSaved()));
+        out.printf("Elapsed:                %.2f s%n", seconds);
+        MemoryBudget budget = MemoryBudget.shared();
+        DiskSpaceLedger ledger = DiskSpaceLedger.shared();
+        if (ledger.getPauseCount() > 0) {
+            out.println("Paused for disk space:  " + ledger.getPauseCount() + " time(s)");
+        }
+        if (budget.getWaitCount() > 0) {
+            out.printf("Memory budget:          peak %s of %s, %d image(s) waited for memory%n",
+                       Formats.formatBytes(budget.getPeakInFlight()), Formats.formatBytes(budget.getCapacity()),
+                       budget.getWaitCount());
+        }
+        if (seconds > 0) {
+            // Skipped files were never decoded, so only processed files count towards the rate
+            out.printf("Throughput:             %.1f images/s, %s/s read%n",
+                       result.getProcessedCount() / seconds,
+                       Formats.formatBytes((long) (result.getMetrics().getBytesRead() / seconds)));
+        }
+        printMetrics(result.getMetrics());
+
+        if (!result.getErrors().isEmpty()) {
+            err.println();
+            err.println("Errors:");
+            for (String error : result.getErrors()) {
+                err.println("  " + error);
+            }
+        }
+    }
+
+    /**
+     * Print where the time of the batch went, stage by stage, and its volumes.
+     */
+    private void printMetrics(ConversionMetrics metrics) {
+        if (metrics.getHistogram(ConversionMetrics.Stage.DECODE).getCount() == 0) {
+            return;
+        }
+        out.println("Stage timings:");
+        for (ConversionMetrics.Stage stage : ConversionMetrics.Stage.values()) {
+            if (metrics.getHistogram(stage).getCount() > 0) {
+                out.println("  " + metrics.describe(stage));
+            }
+        }
+        out.printf("Pixels:                 %.1f MP in, %.1f MP out%n",
+                   metrics.getPixelsIn() / 1e6, metrics.getPixelsOut() / 1e6);
+        out.println("Bytes:                  " + Formats.formatBytes(metrics.getBytesRead()) + " read, "
+                    + Formats.formatBytes(metrics.getBytesWritten()) + " written");
+        double wallSeconds = metrics.getWallNanos() / 1e9;
+        if (metrics.getCpuNanos() >= 0 && wallSeconds > 0) {
+            double cpuSeconds = metrics.getCpuNanos() / 1e9;
+            out.printf("CPU time:               %.2f s over %.2f s wall (%.1f cores busy)%n",
+                       cpuSeconds, wallSeconds, cpuSeconds / wallSeconds);
+        }
+    }
+
+    /**
+     * Remove the console appender so stdout only carries the summary.
+     * The rolling log file keeps the detailed log.
+     */
+    private static void detachConsoleLogging() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext) {
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+            // Stopping the asynchronous appender also ends its worker thread
+            Appender<ILoggingEvent> console = root.getAppender("ASYNC_CONSOLE");
+            if (console != null) {
+                root.detachAppender(console);
+                console.stop();
+            }
+        }
+    }
+
+    /**
+     * Prints a progress line every 10% of the batch, or every 100 files while the scan is running.
+     */
+    private class ProgressPrinter implements ConversionListener {
+        private final FileFeed feed;
+        private final AtomicInteger completed = new AtomicInteger();
+
+        ProgressPrinter(FileFeed feed) {
+            this.feed = feed;
+        }
+
+        @Override
+        public void fileStarted(File file) {
+        }
+
+        @Override
+        public void fileFinished(File file, boolean success) {
+            advance();
+        }
+
+        @Override
+        public void fileSkipped(File file) {
+            advance();
+        }
+
+        private void advance() {
+            int done = completed.incrementAndGet();
+            int total = feed.getKnownSize();
+            if (total < 0) {
+                if (done % 100 == 0) {
+                    out.printf("  %d/%d (still scanning)%n", done, feed.getPublishedCount());
+                }
+                return;
+            }
+            int step = Math.max(1, total / 10);
+            if (done % step == 0 || done == total) {
+                out.printf("  %d/%d (%d%%)%n", done, total, done * 100 / total);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLineRunner(System.out, System.err).run(args);
+        logger.info("Command-line conversion finished with exit code {}", exitCode);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,63 @@
+package com.imageconverter;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A strategy for converting a batch of images.
+ * Implementations decide how the work is spread across threads.
+ */
+public interface ConversionEngine {
+
+    /**
+     * Convert all files, blocking until the batch is finished or cancelled.
+     *
+     * @param files list of files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param listener receives per-file callbacks, possibly from several threads
+     * @return aggregated result of the batch
+     */
+    default ConversionResult convert(List<File> files, int shortEdgeSize, ConversionListener listener) {
+        return convert(FileFeed.of(files), shortEdgeSize, listener);
+    }
+
+    /**
+     * Convert files as they arrive on a feed, blocking until the feed is closed and drained
+     * or the batch is cancelled.
+     *
+     * @param feed source of the files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param listener receives per-file callbacks, possibly from several threads
+     * @return aggregated result of the batch
+     */
+    ConversionResult convert(FileFeed feed, int shortEdgeSize, ConversionListener listener);
+
+    /**
+     * Request cancellation. Files already in progress may still complete,
+     * no new files are started.
+     */
+    void cancel();
+
+    /**
+     * @return true if cancellation was requested
+     */
+    boolean isCancelled();
+
+    /**
+     * Stop starting new files until {@link #resume()}. Files in progress are completed.
+     */
+    void pause();
+
+    void resume();
+
+    /**
+     * @return true while paused
+     */
+    boolean isPaused();
+
+    /**
+     * @return the ledger the engine reserves output space through, which pauses it while
+     *         the output volume is nearly full
+     */
+    DiskSpaceLedger getDiskSpaceLedger();
+}
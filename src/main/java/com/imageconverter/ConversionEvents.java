@@ -0,0 +1,179 @@
+package com.imageconverter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.File;
+
+/**
+ * Java Flight Recorder events of the conversion stages, so a recording shows which file
+ * each decode, resize, encode and write belonged to next to the GC pauses and samples
+ * of the same thread and time.
+ *
+ * <p>Stage events are used as
+ * <pre>
+ * ConversionEvents.Decode event = new ConversionEvents.Decode();
+ * event.begin();
+ * ... decode ...
+ * if (event.shouldCommit()) {
+ *     event.path = file.getPath();
+ *     ...
+ *     event.commit();
+ * }
+ * </pre>
+ * While no recording has the event enabled, {@code shouldCommit()} is false and the JIT
+ * removes the allocation, so the events cost nothing measurable when JFR is off.
+ * The bundled {@value #CONFIGURATION} enables all of them.
+ */
+public final class ConversionEvents {
+
+    /** Class path resource of the JFR configuration enabling these events. */
+    public static final String CONFIGURATION = "/image-converter.jfc";
+
+    private ConversionEvents() {
+    }
+
+    @Name("com.imageconverter.Decode")
+    @Label("Decode Image")
+    @Description("Reading and decoding a source image")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Decode extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Source Width")
+        public int sourceWidth;
+
+        @Label("Source Height")
+        public int sourceHeight;
+
+        @Label("Width")
+        @Description("Width after subsampled decoding")
+        public int width;
+
+        @Label("Height")
+        @Description("Height after subsampled decoding")
+        public int height;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("com.imageconverter.Resize")
+    @Label("Resize Image")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Resize extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Mode")
+        public String mode;
+
+        @Label("Source Width")
+        public int sourceWidth;
+
+        @Label("Source Height")
+        public int sourceHeight;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+    }
+
+    @Name("com.imageconverter.Encode")
+    @Label("Encode WebP")
+    @Description("Encoding an image as WebP into memory")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Encode extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("com.imageconverter.Write")
+    @Label("Write WebP")
+    @Description("Writing an encoded WebP file and moving it into place")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Write extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Output")
+        public String output;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("com.imageconverter.Skip")
+    @Label("Skip Image")
+    @Description("A source skipped because its WebP output is up to date")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Skip extends Event {
+        @Label("Path")
+        public String path;
+    }
+
+    @Name("com.imageconverter.Failure")
+    @Label("Conversion Failure")
+    @Category({"Image Converter", "Conversion"})
+    @StackTrace(false)
+    public static final class Failure extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Message")
+        public String message;
+    }
+
+    /**
+     * Record that a source was skipped.
+     *
+     * @param file the source image
+     */
+    public static void skipped(File file) {
+        Skip event = new Skip();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.commit();
+        }
+    }
+
+    /**
+     * Record that a source failed to convert.
+     *
+     * @param file the source image
+     * @param message the error reported for it
+     */
+    public static void failed(File file, String message) {
+        Failure event = new Failure();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.message = message;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.imageconverter;
+
+import java.io.File;
+
+/**
+ * Callback interface for observing a batch conversion.
+ * Methods may be called concurrently from several worker threads.
+ */
+public interface ConversionListener {
+
+    /**
+     * Called when a worker starts converting a file.
+     *
+     * @param file the file being converted
+     */
+    void fileStarted(File file);
+
+    /**
+     * Called when a file has been processed.
+     *
+     * @param file the processed file
+     * @param success true if the file was converted successfully
+     */
+    void fileFinished(File file, boolean success);
+
+    /**
+     * Called instead of {@link #fileStarted}/{@link #fileFinished} when a file is skipped
+     * because its output is already up to date.
+     *
+     * @param file the skipped file
+     */
+    default void fileSkipped(File file) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-directory record of converted sources: size, modification time and content hash
+ * of each source, the settings fingerprint it was converted with and the output size.
+ * Stored in a compact binary file with the distinct fingerprints written once,
+ * so a directory with a million entries loads in a single buffered pass.
+ * Entries can be read and updated concurrently, also while the manifest is being saved.
+ */
+public class ConversionManifest {
+    private static final Logger logger = LoggerFactory.getLogger(ConversionManifest.class);
+
+    /** Hidden manifest file in each converted directory. */
+    public static final String MANIFEST_FILE = ".image-converter-manifest";
+
+    /** Hash of an entry recorded without reading the source, e.g. during a forced rebuild. */
+    public static final long NO_HASH = 0;
+
+    private static final int MAGIC = 0x49434D46; // "ICMF"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final Map<String, Entry> entries;
+    private volatile boolean dirty;
+
+    private ConversionManifest(File directory, Map<String, Entry> entries) {
+        this.directory = directory;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the manifest of a directory. A missing or unreadable manifest yields an empty one.
+     *
+     * @param directory the directory containing the sources
+     * @return the manifest
+     */
+    public static ConversionManifest load(File directory) {
+        File file = new File(directory, MANIFEST_FILE);
+        if (!file.isFile()) {
+            return new ConversionManifest(directory, new ConcurrentHashMap<>());
+        }
+
+        long startTime = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring manifest with unknown format: {}", file);
+                return new ConversionManifest(directory, new ConcurrentHashMap<>());
+            }
+
+            String[] fingerprints = new String[in.readInt()];
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = in.readUTF();
+            }
+
+            int count = in.readInt();
+            Map<String, Entry> entries = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                long hash = in.readLong();
+                String fingerprint = fingerprints[in.readInt()];
+                long outputSize = in.readLong();
+                entries.put(name, new Entry(size, lastModified, hash, fingerprint, outputSize));
+            }
+
+            logger.debug("Loaded manifest of {} with {} entries in {} ms",
+                        directory, count, (System.nanoTime() - startTime) / 1_000_000);
+            return new ConversionManifest(directory, entries);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read manifest {}, starting a new one", file, e);
+            return new ConversionManifest(directory, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Get the entry of a source file.
+     *
+     * @param name file name of the source within the directory
+     * @return the entry, or null if the source was never converted
+     */
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Record or replace the entry of a source file.
+     *
+     * @param name file name of the source within the directory
+     * @param entry the new entry
+     */
+    public void put(String name, Entry entry) {
+        entries.put(name, entry);
+        dirty = true;
+    }
+
+    /**
+     * Forget a source file, e.g. after its conversion failed.
+     *
+     * @param name file name of the source within the directory
+     */
+    public void remove(String name) {
+        if (entries.remove(name) != null) {
+            dirty = true;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the manifest if it changed. The file is replaced atomically,
+     * so an interrupted save leaves the previous manifest intact.
+     *
+     * @return true if the manifest is saved (or had no changes)
+     */
+    public synchronized boolean save() {
+        if (!dirty) {
+            return true;
+        }
+        // Cleared before taking the snapshot, so entries put while saving are saved next time
+        dirty = false;
+
+        File target = new File(directory, MANIFEST_FILE);
+        // A temporary file of its own, so concurrent runs over the directory do not clobber each other
+        Path temp = null;
+        try {
+            temp = AtomicFiles.newTempFile(target);
+            List<String> fingerprints = new ArrayList<>();
+            Map<String, Integer> fingerprintIndex = new HashMap<>();
+            Map<String, Entry> snapshot = new HashMap<>(entries);
+            for (Entry entry : snapshot.values()) {
+                fingerprintIndex.computeIfAbsent(entry.fingerprint, fingerprint -> {
+                    fingerprints.add(fingerprint);
+                    return fingerprints.size() - 1;
+                });
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW,
+                                                                   StandardOpenOption.WRITE), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(fingerprints.size());
+                for (String fingerprint : fingerprints) {
+                    out.writeUTF(fingerprint);
+                }
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> item : snapshot.entrySet()) {
+                    Entry entry = item.getValue();
+                    out.writeUTF(item.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    out.writeLong(entry.hash);
+                    out.writeInt(fingerprintIndex.get(entry.fingerprint));
+                    out.writeLong(entry.outputSize);
+                }
+            }
+            AtomicFiles.commit(temp, target);
+            logger.debug("Saved manifest of {} with {} entries", directory, snapshot.size());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not write manifest in {}", directory, e);
+            dirty = true;
+            if (temp != null) {
+                AtomicFiles.discard(temp);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * What is known about one converted source.
+     */
+    public static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final long hash;
+        private final String fingerprint;
+        private final long outputSize;
+
+        public Entry(long size, long lastModified, long hash, String fingerprint, long outputSize) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.fingerprint = fingerprint;
+            this.outputSize = outputSize;
+        }
+
+        /**
+         * Copy of this entry with a different source modification time.
+         *
+         * @param lastModified the new modification time
+         * @return the updated entry
+         */
+        public Entry withLastModified(long lastModified) {
+            return new Entry(size, lastModified, hash, fingerprint, outputSize);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getOutputSize() {
+            return outputSize;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.imageconverter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and volumes of one batch, to tell whether it was decode-, resize-, encode- or I/O-bound.
+ * Each stage of every conversion is timed with {@link System#nanoTime()} into a
+ * {@link LatencyHistogram}; pixels and bytes are summed. Wall-clock time is measured from
+ * {@link #start()} to {@link #finish()}, CPU time is that of the whole process over the same span.
+ * Recording is thread-safe and cheap enough to stay on for every batch.
+ */
+public class ConversionMetrics {
+
+    /**
+     * Timed steps of a conversion.
+     */
+    public enum Stage {
+        /** Reading and decoding the source image. */
+        DECODE("decode"),
+        RESIZE("resize"),
+        /** Encoding WebP into memory. */
+        ENCODE("encode"),
+        /** Writing the encoded WebP file. */
+        WRITE("write");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final LongAdder pixelsIn = new LongAdder();
+    private final LongAdder pixelsOut = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder parallelResizes = new LongAdder();
+    private volatile long startNanos;
+    private volatile long startCpuNanos = -1;
+    private volatile long wallNanos;
+    private volatile long cpuNanos = -1;
+
+    public ConversionMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Mark the start of the batch.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        startCpuNanos = processCpuNanos();
+    }
+
+    /**
+     * Mark the end of the batch.
+     */
+    public void finish() {
+        wallNanos = System.nanoTime() - startNanos;
+        long endCpuNanos = processCpuNanos();
+        cpuNanos = startCpuNanos >= 0 && endCpuNanos >= 0 ? endCpuNanos - startCpuNanos : -1;
+    }
+
+    /**
+     * Record the duration of a stage.
+     *
+     * @param stage the stage
+     * @param startNanos {@link System#nanoTime()} when the stage began
+     */
+    public void record(Stage stage, long startNanos) {
+        histograms.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count a decoded source image.
+     *
+     * @param pixels pixels of the source image
+     * @param bytes size of the source file
+     */
+    public void addInput(long pixels, long bytes) {
+        pixelsIn.add(pixels);
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Count an encoded image.
+     *
+     * @param pixels pixels of the encoded image
+     */
+    public void addOutputPixels(long pixels) {
+        pixelsOut.add(pixels);
+    }
+
+    /**
+     * Count a written output file.
+     *
+     * @param bytes size of the file
+     */
+    public void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Count a resize that was split into parallel row bands.
+     */
+    public void addParallelResize() {
+        parallelResizes.increment();
+    }
+
+    /**
+     * @param stage a stage
+     * @return durations of the stage
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public long getPixelsIn() {
+        return pixelsIn.sum();
+    }
+
+    public long getPixelsOut() {
+        return pixelsOut.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return number of resizes split into parallel row bands
+     */
+    public long getParallelResizes() {
+        return parallelResizes.sum();
+    }
+
+    /**
+     * @return wall-clock duration of the batch in nanoseconds, 0 if it was not measured
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return CPU time of the process during the batch in nanoseconds, -1 if unavailable
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Describe a stage in one line, e.g. for the command-line summary.
+     *
+     * @param stage the stage
+     * @return count, percentiles and total time of the stage
+     */
+    public String describe(Stage stage) {
+        LatencyHistogram histogram = histograms.get(stage);
+        return String.format("%-7s n=%-6d p50=%8.1f ms  p95=%8.1f ms  p99=%8.1f ms  max=%8.1f ms  total=%8.1f s",
+                             stage.getName(), histogram.getCount(),
+                             histogram.getPercentileNanos(50) / 1e6, histogram.getPercentileNanos(95) / 1e6,
+                             histogram.getPercentileNanos(99) / 1e6, histogram.getMaxNanos() / 1e6,
+                             histogram.getTotalNanos() / 1e9);
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,392 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Live view of a running batch over JMX.
+ * The engine passes its per-file callbacks through the monitor, which counts them, the same
+ * callbacks {@link ConversionTask} turns into progress, and forwards them to the engine's listener.
+ * Rates over sliding windows come from snapshots of the running totals taken at most once a
+ * second, whenever a file finishes or an attribute is read, and kept for five minutes.
+ *
+ * <p>While the batch runs, the monitor also logs one INFO line with the totals and rates every
+ * {@value #SUMMARY_INTERVAL_SECONDS} seconds, in place of log lines for every file.
+ */
+public class ConversionMonitor implements ConversionMonitorMXBean, ConversionListener {
+    private static final Logger logger = LoggerFactory.getLogger(ConversionMonitor.class);
+
+    private static final long SAMPLE_NANOS = 1_000_000_000L;
+    private static final long LONGEST_WINDOW_NANOS = 300 * SAMPLE_NANOS;
+    private static final long SUMMARY_INTERVAL_SECONDS = 10;
+
+    private final String engineName;
+    private final ConversionEngine engine;
+    private final PauseGate pauseGate;
+    private final FileFeed feed;
+    private final ConversionMetrics metrics;
+    private final DiskSpaceLedger ledger;
+    private final Supplier<Map<String, Integer>> queueDepths;
+    private final ConversionListener listener;
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger started = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Deque<Sample> samples = new ArrayDeque<>();
+    private ObjectName objectName;
+    private ScheduledExecutorService summaryTimer;
+    private Sample lastSummary;
+
+    /**
+     * Create a monitor for a batch that is about to start.
+     *
+     * @param engineName "batch" or "pipeline", part of the object name
+     * @param engine the engine, cancelled by {@link #cancel()}
+     * @param pauseGate the engine's gate, closed by {@link #pause()}
+     * @param feed files of the batch
+     * @param metrics metrics the batch records pixels and bytes in
+     * @param ledger disk space ledger of the batch
+     * @param queueDepths reports the queue in front of each stage, may be null
+     * @param listener listener of the batch, receives every callback after the monitor
+     */
+    public ConversionMonitor(String engineName, ConversionEngine engine, PauseGate pauseGate, FileFeed feed,
+                             ConversionMetrics metrics, DiskSpaceLedger ledger,
+                             Supplier<Map<String, Integer>> queueDepths, ConversionListener listener) {
+        this.engineName = engineName;
+        this.engine = engine;
+        this.pauseGate = pauseGate;
+        this.feed = feed;
+        this.metrics = metrics;
+        this.ledger = ledger;
+        this.queueDepths = queueDepths;
+        this.listener = listener;
+        samples.add(new Sample(startNanos, 0, 0, 0, 0, 0));
+    }
+
+    /**
+     * Register over JMX and start logging summaries, as the batch starts.
+     */
+    public synchronized void start() {
+        register();
+        lastSummary = samples.peekFirst();
+        summaryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryTimer.scheduleAtFixedRate(this::logSummary, SUMMARY_INTERVAL_SECONDS, SUMMARY_INTERVAL_SECONDS,
+                                         TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop logging summaries and unregister, once the batch is finished.
+     */
+    public synchronized void stop() {
+        if (summaryTimer != null) {
+            summaryTimer.shutdownNow();
+            summaryTimer = null;
+        }
+        unregister();
+    }
+
+    /**
+     * Register with the platform MBean server. Only one batch per engine type is registered
+     * at a time; a second concurrent batch runs unmonitored.
+     */
+    private void register() {
+        try {
+            ObjectName name = new ObjectName("com.imageconverter:type=Conversion,engine=" + engineName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+            logger.debug("Registered {}", name);
+        } catch (InstanceAlreadyExistsException e) {
+            logger.info("Another {} conversion is already registered over JMX, not monitoring this one", engineName);
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Could not register conversion monitor over JMX", e);
+        }
+    }
+
+    private void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.warn("Could not unregister {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void fileStarted(File file) {
+        started.incrementAndGet();
+        listener.fileStarted(file);
+    }
+
+    @Override
+    public void fileFinished(File file, boolean success) {
+        (success ? converted : failed).incrementAndGet();
+        sample();
+        listener.fileFinished(file, success);
+    }
+
+    @Override
+    public void fileSkipped(File file) {
+        skipped.incrementAndGet();
+        sample();
+        listener.fileSkipped(file);
+    }
+
+    @Override
+    public String getEngine() {
+        return engineName;
+    }
+
+    @Override
+    public int getFilesTotal() {
+        return feed.getPublishedCount();
+    }
+
+    @Override
+    public boolean isTotalKnown() {
+        return feed.isClosed();
+    }
+
+    @Override
+    public int getFilesConverted() {
+        return converted.get();
+    }
+
+    @Override
+    public int getFilesFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public int getFilesSkipped() {
+        return skipped.get();
+    }
+
+    @Override
+    public int getFilesInFlight() {
+        // A file failing before it was started would otherwise count negative
+        return Math.max(0, started.get() - converted.get() - failed.get());
+    }
+
+    @Override
+    public int getFilesQueued() {
+        return feed.getQueuedCount();
+    }
+
+    /**
+     * Whether the end of the batch is in sight: the feed is closed and fewer than the given
+     * number of files are still queued or being converted.
+     *
+     * @param files number of files
+     * @param handedOut files taken from the feed but not started yet, e.g. in an engine's queue
+     * @return true if fewer files remain
+     */
+    public boolean isRemainingBelow(int files, int handedOut) {
+        return feed.isClosed() && feed.getQueuedCount() + handedOut + getFilesInFlight() < files;
+    }
+
+    @Override
+    public Map<String, Integer> getStageQueueDepths() {
+        return queueDepths != null ? queueDepths.get() : Collections.emptyMap();
+    }
+
+    @Override
+    public Throughput getThroughputTenSeconds() {
+        return throughput(10 * SAMPLE_NANOS);
+    }
+
+    @Override
+    public Throughput getThroughputOneMinute() {
+        return throughput(60 * SAMPLE_NANOS);
+    }
+
+    @Override
+    public Throughput getThroughputFiveMinutes() {
+        return throughput(LONGEST_WINDOW_NANOS);
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public double getEstimatedSecondsRemaining() {
+        if (!feed.isClosed()) {
+            return -1;
+        }
+        Sample now = sample();
+        int remaining = feed.getPublishedCount() - (int) now.finished;
+        if (remaining <= 0) {
+            return 0;
+        }
+        // Skipped files count here: they are part of what remains to be done
+        Sample base = baseline(now.nanos - 60 * SAMPLE_NANOS);
+        double seconds = (now.nanos - base.nanos) / 1e9;
+        double rate = seconds > 0 ? (now.finished - base.finished) / seconds : 0;
+        return rate > 0 ? remaining / rate : -1;
+    }
+
+    @Override
+    public String getEstimatedCompletion() {
+        double seconds = getEstimatedSecondsRemaining();
+        if (seconds < 0) {
+            return "";
+        }
+        return Instant.now().plusMillis((long) (seconds * 1000)).truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return pauseGate.isPaused();
+    }
+
+    @Override
+    public boolean isWaitingForDiskSpace() {
+        return ledger.isPaused();
+    }
+
+    @Override
+    public void pause() {
+        logger.info("Conversion paused over JMX");
+        pauseGate.pause();
+    }
+
+    @Override
+    public void resume() {
+        logger.info("Conversion resumed over JMX");
+        pauseGate.resume();
+    }
+
+    @Override
+    public void cancel() {
+        logger.info("Conversion cancelled over JMX");
+        engine.cancel();
+        // A paused engine notices the cancellation while waiting at the gate
+    }
+
+    /**
+     * Log the totals and the rates since the previous summary, unless the batch was idle,
+     * e.g. a watch with nothing to do.
+     */
+    private void logSummary() {
+        Sample now = sample();
+        Sample last = lastSummary;
+        lastSummary = now;
+        int inFlight = getFilesInFlight();
+        if (now.finished == last.finished && inFlight == 0) {
+            return;
+        }
+        double seconds = (now.nanos - last.nanos) / 1e9;
+        logger.info("Progress: {} converted, {} failed, {} skipped of {}{}, {} in flight, {} queued | "
+                    + "{} images/s, {} MP/s, {}/s read, {}/s written",
+                   converted.get(), failed.get(), skipped.get(), feed.getPublishedCount(),
+                   feed.isClosed() ? "" : "+", inFlight, feed.getQueuedCount(),
+                   String.format("%.1f", (now.images - last.images) / seconds),
+                   String.format("%.1f", (now.pixels - last.pixels) / 1e6 / seconds),
+                   Formats.formatBytes((long) ((now.bytesRead - last.bytesRead) / seconds)),
+                   Formats.formatBytes((long) ((now.bytesWritten - last.bytesWritten) / seconds)));
+    }
+
+    /**
+     * Compute rates over a window from the snapshot at or before its start.
+     */
+    private Throughput throughput(long windowNanos) {
+        Sample now = sample();
+        Sample base = baseline(now.nanos - windowNanos);
+        double seconds = (now.nanos - base.nanos) / 1e9;
+        if (seconds <= 0) {
+            return new Throughput(0, 0, 0, 0, 0);
+        }
+        return new Throughput(seconds,
+                              (now.images - base.images) / seconds,
+                              (now.pixels - base.pixels) / 1e6 / seconds,
+                              (now.bytesRead - base.bytesRead) / seconds,
+                              (now.bytesWritten - base.bytesWritten) / seconds);
+    }
+
+    /**
+     * Take a snapshot of the totals, remembering it if the last one is a second old.
+     *
+     * @return the current totals
+     */
+    private synchronized Sample sample() {
+        int images = converted.get() + failed.get();
+        Sample now = new Sample(System.nanoTime(), images, images + skipped.get(),
+                                metrics.getPixelsIn(), metrics.getBytesRead(), metrics.getBytesWritten());
+        if (now.nanos - samples.peekLast().nanos >= SAMPLE_NANOS) {
+            samples.addLast(now);
+            // Keep one snapshot from before the longest window as its baseline
+            while (samples.size() > 2) {
+                Sample oldest = samples.pollFirst();
+                if (now.nanos - samples.peekFirst().nanos < LONGEST_WINDOW_NANOS) {
+                    samples.addFirst(oldest);
+                    break;
+                }
+            }
+        }
+        return now;
+    }
+
+    /**
+     * @return the latest snapshot taken at or before the given time, or the oldest one
+     */
+    private synchronized Sample baseline(long nanos) {
+        Sample base = samples.peekFirst();
+        for (Sample sample : samples) {
+            if (sample.nanos > nanos) {
+                break;
+            }
+            base = sample;
+        }
+        return base;
+    }
+
+    /**
+     * Running totals at one point in time.
+     */
+    private static final class Sample {
+        final long nanos;
+        final long images;
+        final long finished;
+        final long pixels;
+        final long bytesRead;
+        final long bytesWritten;
+
+        Sample(long nanos, long images, long finished, long pixels, long bytesRead, long bytesWritten) {
+            this.nanos = nanos;
+            this.images = images;
+            this.finished = finished;
+            this.pixels = pixels;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+}
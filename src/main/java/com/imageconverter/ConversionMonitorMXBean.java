@@ -0,0 +1,97 @@
+package com.imageconverter;
+
+import java.util.Map;
+
+/**
+ * Management interface of a running batch, registered by the engines as
+ * {@code com.imageconverter:type=Conversion,engine=<batch|pipeline>} so monitoring agents
+ * can scrape progress over JMX, e.g. in watch mode.
+ */
+public interface ConversionMonitorMXBean {
+
+    /**
+     * @return "batch" or "pipeline"
+     */
+    String getEngine();
+
+    /**
+     * @return files handed to the engine so far
+     */
+    int getFilesTotal();
+
+    /**
+     * @return true once no more files will be added, i.e. {@link #getFilesTotal()} is final
+     */
+    boolean isTotalKnown();
+
+    int getFilesConverted();
+
+    int getFilesFailed();
+
+    int getFilesSkipped();
+
+    /**
+     * @return files started but not yet finished
+     */
+    int getFilesInFlight();
+
+    /**
+     * @return files waiting to be started
+     */
+    int getFilesQueued();
+
+    /**
+     * @return items waiting in front of each pipeline stage; empty for the batch engine
+     */
+    Map<String, Integer> getStageQueueDepths();
+
+    /**
+     * @return throughput over the last 10 seconds
+     */
+    Throughput getThroughputTenSeconds();
+
+    /**
+     * @return throughput over the last minute
+     */
+    Throughput getThroughputOneMinute();
+
+    /**
+     * @return throughput over the last five minutes
+     */
+    Throughput getThroughputFiveMinutes();
+
+    double getElapsedSeconds();
+
+    /**
+     * @return seconds until all files are finished at the rate of the last minute,
+     *         -1 while the total is unknown or nothing has finished yet
+     */
+    double getEstimatedSecondsRemaining();
+
+    /**
+     * @return ISO-8601 time at which all files are expected to be finished, empty if unknown
+     */
+    String getEstimatedCompletion();
+
+    /**
+     * @return true while paused by {@link #pause()}
+     */
+    boolean isPaused();
+
+    /**
+     * @return true while conversions wait for disk space on the output volume
+     */
+    boolean isWaitingForDiskSpace();
+
+    /**
+     * Stop starting new files. Files in flight are completed.
+     */
+    void pause();
+
+    void resume();
+
+    /**
+     * Cancel the batch. Files in flight are completed, no new files are started.
+     */
+    void cancel();
+}
@@ -0,0 +1,143 @@
+package com.imageconverter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Predicted work and output of a batch, produced by {@link ConversionPlanner} from image
+ * headers without converting the batch.
+ */
+public class ConversionPlan {
+    private final int fileCount;
+    private final int upToDateCount;
+    private final int unreadableCount;
+    private final Map<String, Integer> formatCounts;
+    private final long inputBytes;
+    private final long sourcePixels;
+    private final long decodedPixels;
+    private final long outputPixels;
+    private final long predictedOutputBytes;
+    private final int sampleCount;
+    private final double decodeRate;
+    private final double resizeRate;
+    private final double encodeRate;
+    private final double estimatedSeconds;
+
+    public ConversionPlan(int fileCount, int upToDateCount, int unreadableCount, Map<String, Integer> formatCounts,
+                          long inputBytes, long sourcePixels, long decodedPixels, long outputPixels,
+                          long predictedOutputBytes, int sampleCount, double decodeRate, double resizeRate,
+                          double encodeRate, double estimatedSeconds) {
+        this.fileCount = fileCount;
+        this.upToDateCount = upToDateCount;
+        this.unreadableCount = unreadableCount;
+        this.formatCounts = Collections.unmodifiableMap(formatCounts);
+        this.inputBytes = inputBytes;
+        this.sourcePixels = sourcePixels;
+        this.decodedPixels = decodedPixels;
+        this.outputPixels = outputPixels;
+        this.predictedOutputBytes = predictedOutputBytes;
+        this.sampleCount = sampleCount;
+        this.decodeRate = decodeRate;
+        this.resizeRate = resizeRate;
+        this.encodeRate = encodeRate;
+        this.estimatedSeconds = estimatedSeconds;
+    }
+
+    /**
+     * @return number of files in the batch, including up-to-date and unreadable ones
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return files incremental mode would skip; not included in the predictions
+     */
+    public int getUpToDateCount() {
+        return upToDateCount;
+    }
+
+    /**
+     * @return files whose header could not be read; these would fail to convert
+     */
+    public int getUnreadableCount() {
+        return unreadableCount;
+    }
+
+    /**
+     * @return number of files to convert per image format
+     */
+    public Map<String, Integer> getFormatCounts() {
+        return formatCounts;
+    }
+
+    /**
+     * @return total size of the files to convert
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * @return pixels of the source images
+     */
+    public long getSourcePixels() {
+        return sourcePixels;
+    }
+
+    /**
+     * @return pixels after subsampled decoding, i.e. the input of the resize
+     */
+    public long getDecodedPixels() {
+        return decodedPixels;
+    }
+
+    /**
+     * @return pixels of the WebP images to encode
+     */
+    public long getOutputPixels() {
+        return outputPixels;
+    }
+
+    /**
+     * @return predicted total size of the WebP files
+     */
+    public long getPredictedOutputBytes() {
+        return predictedOutputBytes;
+    }
+
+    /**
+     * @return number of images converted in memory to measure the rates and correct the output size
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return measured decode rate in source megapixels per second per thread, 0 if not measured
+     */
+    public double getDecodeRate() {
+        return decodeRate;
+    }
+
+    /**
+     * @return measured resize rate in decoded megapixels per second per thread, 0 if not measured
+     */
+    public double getResizeRate() {
+        return resizeRate;
+    }
+
+    /**
+     * @return measured encode rate in output megapixels per second per thread, 0 if not measured
+     */
+    public double getEncodeRate() {
+        return encodeRate;
+    }
+
+    /**
+     * @return estimated wall-clock duration of the batch in seconds, or -1 if the rates could not be measured
+     */
+    public double getEstimatedSeconds() {
+        return estimatedSeconds;
+    }
+}
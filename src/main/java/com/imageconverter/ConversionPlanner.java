@@ -0,0 +1,317 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Predicts the work, output size and duration of a batch without converting it (dry run).
+ * The headers of all files are read in parallel to get their dimensions, and the target
+ * size of each image is computed exactly as the conversion would. Output sizes come from the
+ * {@link OutputSizeModel}. The duration comes from decode, resize and encode rates measured
+ * on this machine by converting a few images of the batch in memory; the same samples correct
+ * the predicted output size for the content of this batch. Nothing is written to disk.
+ */
+public class ConversionPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(ConversionPlanner.class);
+
+    /** Header reads are dominated by I/O latency, so use more threads than cores. */
+    private static final int HEADER_PARALLELISM = Math.max(4, Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+    private static final int CHUNK_SIZE = 64;
+    private static final int DEFAULT_SAMPLE_COUNT = 5;
+    /** Stop measuring further samples after this long once at least one is measured. */
+    private static final long SAMPLE_TIME_LIMIT_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    private final ImageConverter converter;
+    private final int shortEdgeSize;
+    private final int threads;
+    private int sampleCount = DEFAULT_SAMPLE_COUNT;
+    private volatile boolean cancelled;
+
+    /**
+     * Create a planner.
+     *
+     * @param converter converter with the settings of the planned batch
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param threads worker threads the batch would run with
+     */
+    public ConversionPlanner(ImageConverter converter, int shortEdgeSize, int threads) {
+        this.converter = converter;
+        this.shortEdgeSize = shortEdgeSize;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set how many images are converted in memory to measure the rates and correct the
+     * predicted output size.
+     *
+     * @param sampleCount number of samples; 0 predicts from headers and history only, without a duration
+     */
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = Math.max(0, sampleCount);
+    }
+
+    /**
+     * Stop planning; {@link #plan} returns early with the files examined so far.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Plan the conversion of a batch.
+     *
+     * @param files the files of the batch
+     * @return the plan
+     */
+    public ConversionPlan plan(List<File> files) {
+        long startTime = System.nanoTime();
+        ImageInfo[] infos = new ImageInfo[files.size()];
+        boolean[] upToDate = new boolean[files.size()];
+        readHeaders(files, infos, upToDate);
+
+        int upToDateCount = 0;
+        int unreadableCount = 0;
+        Map<String, Integer> formatCounts = new TreeMap<>();
+        long inputBytes = 0;
+        long sourcePixels = 0;
+        long decodedPixels = 0;
+        long outputPixels = 0;
+        long modelOutputBytes = 0;
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < infos.length; i++) {
+            ImageInfo info = infos[i];
+            if (upToDate[i]) {
+                upToDateCount++;
+                continue;
+            }
+            if (info == null) {
+                unreadableCount++;
+                continue;
+            }
+            File file = files.get(i);
+            formatCounts.merge(info.getFormatName().toLowerCase(Locale.ROOT), 1, Integer::sum);
+            inputBytes += file.length();
+            modelOutputBytes += converter.estimateOutputSize(file, info, shortEdgeSize);
+            sourcePixels += (long) info.getWidth() * info.getHeight();
+            Dimension decoded = converter.computeDecodedSize(info, shortEdgeSize);
+            decodedPixels += (long) decoded.width * decoded.height;
+            Dimension target = ImageConverter.computeTargetSize(decoded.width, decoded.height, shortEdgeSize);
+            outputPixels += (long) target.width * target.height;
+            candidates.add(i);
+        }
+
+        Rates rates = measureRates(files, infos, candidates);
+        long predictedOutputBytes = (long) (modelOutputBytes * rates.outputSizeCorrection);
+        double estimatedSeconds = -1;
+        if (rates.samples > 0) {
+            // Per-file work adds up linearly, so the batch time is the total over the rates
+            double threadSeconds = sourcePixels / rates.decodePixelsPerSecond + outputPixels / rates.encodePixelsPerSecond;
+            if (rates.resizePixelsPerSecond > 0) {
+                threadSeconds += decodedPixels / rates.resizePixelsPerSecond;
+            }
+            int parallelism = Math.min(threads, Runtime.getRuntime().availableProcessors());
+            estimatedSeconds = threadSeconds / parallelism;
+        }
+
+        logger.info("Planned {} files in {} ms: {} to convert, {} up to date, {} unreadable",
+                   files.size(), (System.nanoTime() - startTime) / 1_000_000,
+                   candidates.size(), upToDateCount, unreadableCount);
+        return new ConversionPlan(files.size(), upToDateCount, unreadableCount, formatCounts,
+                                  inputBytes, sourcePixels, decodedPixels, outputPixels, predictedOutputBytes,
+                                  rates.samples, rates.decodePixelsPerSecond / 1e6,
+                                  rates.resizePixelsPerSecond / 1e6, rates.encodePixelsPerSecond / 1e6,
+                                  estimatedSeconds);
+    }
+
+    /**
+     * Read the headers of all files, and check which are up to date in incremental mode.
+     */
+    private void readHeaders(List<File> files, ImageInfo[] infos, boolean[] upToDate) {
+        UpToDateChecker upToDateChecker = converter.createUpToDateChecker(shortEdgeSize);
+        AtomicInteger nextChunk = new AtomicInteger();
+        Runnable worker = () -> {
+            int start;
+            while (!cancelled && (start = nextChunk.getAndAdd(CHUNK_SIZE)) < files.size()) {
+                int end = Math.min(files.size(), start + CHUNK_SIZE);
+                for (int i = start; i < end; i++) {
+                    File file = files.get(i);
+                    if (upToDateChecker != null && upToDateChecker.shouldSkip(file)) {
+                        upToDate[i] = true;
+                    } else {
+                        infos[i] = ImageInfo.read(file);
+                    }
+                }
+            }
+        };
+
+        int parallelism = Math.min(HEADER_PARALLELISM, (files.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        if (parallelism <= 1) {
+            worker.run();
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "plan-headers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < parallelism; i++) {
+            executor.execute(worker);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            cancelled = true;
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Convert a few images spread over the size range of the batch in memory and time each stage.
+     * The smallest image is converted once beforehand so class loading and JIT warm-up are not measured.
+     */
+    private Rates measureRates(List<File> files, ImageInfo[] infos, List<Integer> candidates) {
+        Rates rates = new Rates();
+        if (candidates.isEmpty() || sampleCount == 0 || cancelled) {
+            return rates;
+        }
+        List<Integer> bySize = new ArrayList<>(candidates);
+        bySize.sort(Comparator.comparingLong(i -> (long) infos[i].getWidth() * infos[i].getHeight()));
+        convertSample(files.get(bySize.get(0)), infos[bySize.get(0)], null);
+
+        int samples = Math.min(sampleCount, bySize.size());
+        long deadline = System.nanoTime() + SAMPLE_TIME_LIMIT_NANOS;
+        int previous = -1;
+        for (int k = 0; k < samples && !cancelled; k++) {
+            // Evenly spaced quantiles of the pixel count, up to the largest image
+            int index = (int) ((long) (bySize.size() - 1) * (k + 1) / samples);
+            if (index == previous) {
+                continue;
+            }
+            previous = index;
+            convertSample(files.get(bySize.get(index)), infos[bySize.get(index)], rates);
+            if (rates.samples > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        rates.finish();
+        converter.getOutputSizeModel().save();
+        logger.info("Measured rates from {} sample(s): decode {} MP/s, resize {} MP/s, encode {} MP/s per thread, "
+                   + "output size {}x the learned prediction",
+                   rates.samples, String.format("%.1f", rates.decodePixelsPerSecond / 1e6),
+                   String.format("%.1f", rates.resizePixelsPerSecond / 1e6),
+                   String.format("%.1f", rates.encodePixelsPerSecond / 1e6),
+                   String.format("%.2f", rates.outputSizeCorrection));
+        return rates;
+    }
+
+    /**
+     * Convert one image in memory the same way the engines do.
+     *
+     * @param info header of the image
+     * @param rates receives the stage timings, or null to only warm up
+     */
+    private void convertSample(File file, ImageInfo info, Rates rates) {
+        // Samples share the memory budget with any batch that is running
+        MemoryBudget budget = converter.getMemoryBudget();
+        long reserved = converter.estimateMemoryBytes(info, shortEdgeSize);
+        try {
+            if (reserved > 0 && !budget.acquire(reserved, () -> cancelled)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            return;
+        }
+        try {
+            measureSample(file, info, rates);
+        } finally {
+            if (reserved > 0) {
+                budget.release(reserved);
+            }
+        }
+    }
+
+    private void measureSample(File file, ImageInfo info, Rates rates) {
+        long decodeStart = System.nanoTime();
+        BufferedImage decoded = converter.loadImage(file, shortEdgeSize);
+        if (decoded == null) {
+            return;
+        }
+        long resizeStart = System.nanoTime();
+        BufferedImage resized = converter.resizeByShortEdge(decoded, shortEdgeSize, file);
+        long encodeStart = System.nanoTime();
+        byte[] encoded = converter.encodeWebP(resized, file);
+        long encodeEnd = System.nanoTime();
+        if (encoded == null || rates == null) {
+            return;
+        }
+
+        // Compare with the prediction before the sample itself is learned
+        rates.predictedBytes += converter.estimateOutputSize(file, info, shortEdgeSize);
+        long outputPixels = (long) resized.getWidth() * resized.getHeight();
+        converter.recordOutputSize(file, shortEdgeSize, outputPixels, encoded.length);
+
+        rates.samples++;
+        rates.sourcePixels += (long) info.getWidth() * info.getHeight();
+        rates.decodeNanos += resizeStart - decodeStart;
+        if (shortEdgeSize > 0) {
+            rates.decodedPixels += (long) decoded.getWidth() * decoded.getHeight();
+            rates.resizeNanos += encodeStart - resizeStart;
+        }
+        rates.outputPixels += outputPixels;
+        rates.outputBytes += encoded.length;
+        rates.encodeNanos += encodeEnd - encodeStart;
+    }
+
+    /**
+     * Stage timings of the measured samples, turned into per-thread rates.
+     */
+    private static final class Rates {
+        int samples;
+        long sourcePixels;
+        long decodedPixels;
+        long outputPixels;
+        long outputBytes;
+        long predictedBytes;
+        long decodeNanos;
+        long resizeNanos;
+        long encodeNanos;
+
+        double decodePixelsPerSecond;
+        double resizePixelsPerSecond;
+        double encodePixelsPerSecond;
+        /** Actual over predicted size of the samples; 1 when nothing was sampled. */
+        double outputSizeCorrection = 1;
+
+        void finish() {
+            if (samples == 0) {
+                return;
+            }
+            decodePixelsPerSecond = perSecond(sourcePixels, decodeNanos);
+            resizePixelsPerSecond = resizeNanos > 0 ? perSecond(decodedPixels, resizeNanos) : 0;
+            encodePixelsPerSecond = perSecond(outputPixels, encodeNanos);
+            outputSizeCorrection = (double) outputBytes / Math.max(1, predictedBytes);
+        }
+
+        private static double perSecond(long pixels, long nanos) {
+            return pixels * 1e9 / Math.max(1, nanos);
+        }
+    }
+}
@@ -8,14 +8,27 @@ import java.util.List;
 public class ConversionResult {
     private final int successCount;
     private final int failCount;
+    private final int skippedCount;
     private final List<String> errors;
     private final long spaceSaved;
+    private final ConversionMetrics metrics;
 
     public ConversionResult(int successCount, int failCount, List<String> errors, long spaceSaved) {
+        this(successCount, failCount, 0, errors, spaceSaved);
+    }
+
+    public ConversionResult(int successCount, int failCount, int skippedCount, List<String> errors, long spaceSaved) {
+        this(successCount, failCount, skippedCount, errors, spaceSaved, new ConversionMetrics());
+    }
+
+    public ConversionResult(int successCount, int failCount, int skippedCount, List<String> errors, long spaceSaved,
+                            ConversionMetrics metrics) {
         this.successCount = successCount;
         this.failCount = failCount;
+        this.skippedCount = skippedCount;
         this.errors = errors;
         this.spaceSaved = spaceSaved;
+        this.metrics = metrics;
     }
 
     public int getSuccessCount() {
@@ -26,6 +39,13 @@ public class ConversionResult {
         return failCount;
     }
 
+    /**
+     * @return number of files skipped because their output was already up to date
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
     public List<String> getErrors() {
         return errors;
     }
@@ -34,7 +54,24 @@ public class ConversionResult {
         return spaceSaved;
     }
 
+    /**
+     * @return stage timings, pixels and bytes of the batch; empty if the engine did not measure them
+     */
+    public ConversionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return all files of the batch, including those skipped as up to date
+     */
     public int getTotalCount() {
+        return successCount + failCount + skippedCount;
+    }
+
+    /**
+     * @return files that were actually converted or attempted, i.e. not skipped
+     */
+    public int getProcessedCount() {
         return successCount + failCount;
     }
 }
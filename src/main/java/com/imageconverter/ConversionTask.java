@@ -5,94 +5,177 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Background task for batch image conversion.
  * Extends JavaFX Task to provide progress updates and run on a background thread.
+ * The actual work is delegated to a {@link ConversionEngine}, by default a {@link BatchConverter}.
  */
 public class ConversionTask extends Task<ConversionResult> {
     private static final Logger logger = LoggerFactory.getLogger(ConversionTask.class);
+
+    /** Progress reaches the FX thread at about 15 Hz, however many files finish per second. */
+    private static final long PUBLISH_INTERVAL_MILLIS = 66;
+    /** Ticks the displayed rate is measured over, about 3 seconds. */
+    private static final int RATE_TICKS = 45;
     
-    private final List<File> files;
+    private final FileFeed feed;
     private final int shortEdgeSize;
-    private final ImageConverter converter;
+    private final ConversionEngine engine;
+    private final ConversionListener observer;
+
+    // Written by workers and the disk space ledger, read by the progress publisher
+    private volatile File currentFile;
+    private volatile String notice;
 
     /**
-     * Create a new conversion task.
+     * Create a new conversion task using one worker thread per available processor.
      *
      * @param files list of files to convert
      * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
      */
     public ConversionTask(List<File> files, int shortEdgeSize) {
-        this.files = files;
+        this(files, shortEdgeSize, BatchConverter.defaultThreadCount());
+    }
+
+    /**
+     * Create a new conversion task.
+     *
+     * @param files list of files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param threadCount number of worker threads converting files in parallel
+     */
+    public ConversionTask(List<File> files, int shortEdgeSize, int threadCount) {
+        this(files, shortEdgeSize, new BatchConverter(threadCount));
+    }
+
+    /**
+     * Create a new conversion task running on the given engine.
+     *
+     * @param files list of files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param engine engine performing the conversion
+     */
+    public ConversionTask(List<File> files, int shortEdgeSize, ConversionEngine engine) {
+        this(FileFeed.of(files), shortEdgeSize, engine);
+    }
+
+    /**
+     * Create a new conversion task for files that may still be arriving, e.g. from a running scan.
+     * Progress is reported against the number of files published so far.
+     *
+     * @param feed source of the files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param engine engine performing the conversion
+     */
+    public ConversionTask(FileFeed feed, int shortEdgeSize, ConversionEngine engine) {
+        this(feed, shortEdgeSize, engine, null);
+    }
+
+    /**
+     * Create a new conversion task that also reports per-file events to an observer,
+     * e.g. to show the status of each file.
+     *
+     * @param feed source of the files to convert
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @param engine engine performing the conversion
+     * @param observer receives the engine's per-file callbacks from worker threads, may be null
+     */
+    public ConversionTask(FileFeed feed, int shortEdgeSize, ConversionEngine engine, ConversionListener observer) {
+        this.feed = feed;
+        this.observer = observer;
         this.shortEdgeSize = shortEdgeSize;
-        this.converter = new ImageConverter();
+        this.engine = engine;
     }
 
     @Override
     protected ConversionResult call() throws Exception {
-        logger.info("Starting batch conversion of {} files", files.size());
+        logger.info("Starting batch conversion of {} files{}", feed.getPublishedCount(),
+                   feed.isClosed() ? "" : " (more still being found)");
         
-        int totalFiles = files.size();
-        int successCount = 0;
-        int failCount = 0;
-        List<String> errors = new ArrayList<>();
-        long totalSaved = 0;
-
         updateMessage("Starting conversion...");
-        updateProgress(0, totalFiles);
-
-        for (int i = 0; i < totalFiles; i++) {
-            // Check if task was cancelled
-            if (isCancelled()) {
-                logger.info("Conversion task was cancelled");
-                updateMessage("Conversion cancelled");
-                break;
+        updateProgress(0, feed.getPublishedCount());
+
+        // Shows why progress stalls while the output volume is nearly full
+        DiskSpaceLedger.Listener spaceListener = new DiskSpaceLedger.Listener() {
+            @Override
+            public void paused(String volume, long usableBytes, long minFreeBytes) {
+                notice = String.format("Paused: only %s free on %s, waiting for disk space...",
+                                       Formats.formatBytes(usableBytes), volume);
+            }
+
+            @Override
+            public void resumed(String volume) {
+                notice = null;
+            }
+        };
+        DiskSpaceLedger ledger = engine.getDiskSpaceLedger();
+        ledger.addListener(spaceListener);
+
+        // Workers only bump counters; the publisher below turns them into progress
+        ConversionListener forward = new ConversionListener() {
+            @Override
+            public void fileStarted(File file) {
+                currentFile = file;
+                if (observer != null) {
+                    observer.fileStarted(file);
+                }
             }
 
-            File file = files.get(i);
-            updateMessage("Converting: " + file.getName());
-            
-            try {
-                long originalSize = file.length();
-                boolean success = converter.convertImage(file, shortEdgeSize);
-                
-                if (success) {
-                    successCount++;
-                    
-                    // Calculate space saved
-                    String webpPath = file.getAbsolutePath();
-                    webpPath = webpPath.substring(0, webpPath.lastIndexOf('.')) + ".webp";
-                    File webpFile = new File(webpPath);
-                    if (webpFile.exists()) {
-                        long webpSize = webpFile.length();
-                        totalSaved += (originalSize - webpSize);
-                    }
-                    
-                    logger.debug("Successfully converted: {}", file.getName());
-                } else {
-                    failCount++;
-                    String errorMsg = "Failed to convert: " + file.getName();
-                    errors.add(errorMsg);
-                    logger.error(errorMsg);
+            @Override
+            public void fileFinished(File file, boolean success) {
+                if (observer != null) {
+                    observer.fileFinished(file, success);
                 }
-            } catch (Exception e) {
-                failCount++;
-                String errorMsg = file.getName() + ": " + e.getMessage();
-                errors.add(errorMsg);
-                logger.error("Exception during conversion of {}", file.getName(), e);
             }
 
-            // Update progress
-            updateProgress(i + 1, totalFiles);
+            @Override
+            public void fileSkipped(File file) {
+                if (observer != null) {
+                    observer.fileSkipped(file);
+                }
+            }
+        };
+        ThroughputCounter counter = new ThroughputCounter(forward);
+
+        ProgressPublisher publisher = new ProgressPublisher(counter);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(publisher::publish, PUBLISH_INTERVAL_MILLIS, PUBLISH_INTERVAL_MILLIS,
+                                  TimeUnit.MILLISECONDS);
+
+        ConversionResult result;
+        try {
+            result = engine.convert(feed, shortEdgeSize, counter);
+        } finally {
+            timer.shutdownNow();
+            ledger.removeListener(spaceListener);
         }
+        updateProgress(counter.getCompleted() + counter.getSkipped(), feed.getPublishedCount());
 
-        updateMessage("Conversion complete");
-        logger.info("Batch conversion completed: {} successful, {} failed", successCount, failCount);
+        if (isCancelled() || engine.isCancelled()) {
+            logger.info("Conversion task was cancelled");
+            updateMessage("Conversion cancelled");
+        } else {
+            updateMessage("Conversion complete");
+        }
+        logger.info("Batch conversion completed: {} successful, {} failed, {} skipped",
+                   result.getSuccessCount(), result.getFailCount(), result.getSkippedCount());
 
-        return new ConversionResult(successCount, failCount, errors, totalSaved);
+        return result;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        engine.cancel();
+        return super.cancel(mayInterruptIfRunning);
     }
 
     @Override
@@ -112,4 +195,59 @@ public class ConversionTask extends Task<ConversionResult> {
         super.cancelled();
         logger.warn("ConversionTask was cancelled");
     }
+
+    /**
+     * Publishes the counters to the task's progress and message at a fixed rate.
+     * Runs on the timer thread only. The rate is measured over the last few seconds of ticks,
+     * so it follows changes in speed without flickering from one tick to the next.
+     */
+    private final class ProgressPublisher {
+        private final ThroughputCounter counter;
+        private final long[] tickNanos = new long[RATE_TICKS];
+        private final long[] tickImages = new long[RATE_TICKS];
+        private final long[] tickDone = new long[RATE_TICKS];
+        private int ticks;
+
+        ProgressPublisher(ThroughputCounter counter) {
+            this.counter = counter;
+            tickNanos[0] = System.nanoTime();
+            ticks = 1;
+        }
+
+        void publish() {
+            long now = System.nanoTime();
+            long images = counter.getCompleted();
+            long done = images + counter.getSkipped();
+            int total = feed.getPublishedCount();
+            updateProgress(done, total);
+
+            // Oldest tick still in the ring is the start of the window
+            int oldest = ticks < RATE_TICKS ? 0 : ticks % RATE_TICKS;
+            double seconds = (now - tickNanos[oldest]) / 1_000_000_000.0;
+            double imageRate = seconds > 0 ? (images - tickImages[oldest]) / seconds : 0;
+            double doneRate = seconds > 0 ? (done - tickDone[oldest]) / seconds : 0;
+            int slot = ticks % RATE_TICKS;
+            tickNanos[slot] = now;
+            tickImages[slot] = images;
+            tickDone[slot] = done;
+            ticks++;
+
+            String message = notice;
+            if (message == null && engine.isPaused()) {
+                message = String.format("Paused after %d of %d files", done, total);
+            }
+            if (message == null) {
+                File file = currentFile;
+                StringBuilder text = new StringBuilder();
+                text.append(file != null ? "Converting: " + file.getName() : "Converting");
+                text.append(String.format(" | %d/%d | %.1f images/s", done, total, imageRate));
+                // Only a closed feed has a known end; skipped files count as work done
+                if (feed.isClosed() && doneRate > 0 && done < total) {
+                    text.append(" | ETA ").append(Formats.formatDuration((total - done) / doneRate));
+                }
+                message = text.toString();
+            }
+            updateMessage(message);
+        }
+    }
 }
@@ -0,0 +1,218 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Finds the supported images below a directory.
+ * Subdirectories are listed in parallel on a dedicated fork/join pool, and the images of
+ * each directory are published as soon as that directory has been listed, so consumers
+ * can start working long before a deep tree is fully scanned.
+ *
+ * <p>Include and exclude filters are glob patterns. A pattern without a {@code /}
+ * matches file names at any depth (e.g. {@code *.png}); a pattern with a {@code /}
+ * matches the path relative to the root (e.g. {@code raw/**}). Excluded directories
+ * are not descended into. Symbolic links to directories are not followed.
+ *
+ * <p>Scanning only reads the directories. Stale temporary files of interrupted conversions
+ * are removed separately when a conversion starts, see {@link AtomicFiles#sweepStale}.
+ */
+public class DirectoryScanner {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryScanner.class);
+
+    /** Directory listings overlap well on network shares, so use more threads than cores. */
+    private static final int SCAN_PARALLELISM = Math.max(4, Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final Path root;
+    private final boolean recursive;
+    private final List<GlobFilter> includes = new ArrayList<>();
+    private final List<GlobFilter> excludes = new ArrayList<>();
+    private final AtomicInteger fileCount = new AtomicInteger();
+    private final AtomicInteger directoryCount = new AtomicInteger();
+    private final AtomicInteger unreadableCount = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    /**
+     * Create a scanner for the top level of a directory with no filters.
+     *
+     * @param root the directory
+     */
+    public DirectoryScanner(File root) {
+        this(root, false, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Create a scanner.
+     *
+     * @param root the directory to scan
+     * @param recursive true to descend into subdirectories
+     * @param includeGlobs if not empty, only images matching one of these patterns are found
+     * @param excludeGlobs images and directories matching one of these patterns are skipped
+     * @throws IllegalArgumentException if a pattern is not a valid glob
+     */
+    public DirectoryScanner(File root, boolean recursive, List<String> includeGlobs, List<String> excludeGlobs) {
+        this.root = root.toPath().toAbsolutePath().normalize();
+        this.recursive = recursive;
+        FileSystem fileSystem = this.root.getFileSystem();
+        for (String glob : includeGlobs) {
+            includes.add(new GlobFilter(fileSystem, glob));
+        }
+        for (String glob : excludeGlobs) {
+            excludes.add(new GlobFilter(fileSystem, glob));
+        }
+    }
+
+    /**
+     * Scan the directory, blocking until done or cancelled.
+     *
+     * @param sink receives the images of each directory, sorted by name; called from scanner threads
+     * @return number of images found
+     */
+    public int scan(Consumer<List<File>> sink) {
+        long startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(SCAN_PARALLELISM);
+        try {
+            pool.invoke(new ScanDirectory(root, sink));
+        } finally {
+            pool.shutdown();
+        }
+        logger.info("Scanned {} director(ies) of {} in {} ms: {} image(s), {} unreadable{}",
+                   directoryCount.get(), root, (System.nanoTime() - startTime) / 1_000_000,
+                   fileCount.get(), unreadableCount.get(), cancelled ? " (cancelled)" : "");
+        return fileCount.get();
+    }
+
+    /**
+     * Scan the directory and collect all images.
+     *
+     * @return images sorted by path
+     */
+    public List<File> scanAll() {
+        List<File> files = Collections.synchronizedList(new ArrayList<>());
+        scan(files::addAll);
+        List<File> sorted = new ArrayList<>(files);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Stop scanning. Directories already being listed are finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public File getRoot() {
+        return root.toFile();
+    }
+
+    /**
+     * @return number of images found so far
+     */
+    public int getFileCount() {
+        return fileCount.get();
+    }
+
+    private boolean isExcluded(Path path) {
+        return matchesAny(excludes, path);
+    }
+
+    private boolean isIncluded(Path path) {
+        return includes.isEmpty() || matchesAny(includes, path);
+    }
+
+    private boolean matchesAny(List<GlobFilter> filters, Path path) {
+        for (GlobFilter filter : filters) {
+            if (filter.matcher.matches(filter.nameOnly ? path.getFileName() : root.relativize(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A glob pattern and whether it applies to the file name or the relative path.
+     */
+    private static final class GlobFilter {
+        final PathMatcher matcher;
+        final boolean nameOnly;
+
+        GlobFilter(FileSystem fileSystem, String glob) {
+            this.matcher = fileSystem.getPathMatcher("glob:" + glob);
+            this.nameOnly = !glob.contains("/");
+        }
+    }
+
+    /**
+     * Lists one directory, publishes its images and forks a task per subdirectory.
+     */
+    private final class ScanDirectory extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Consumer<List<File>> sink;
+
+        ScanDirectory(Path directory, Consumer<List<File>> sink) {
+            this.directory = directory;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) {
+                return;
+            }
+            directoryCount.incrementAndGet();
+
+            List<File> images = new ArrayList<>();
+            List<ScanDirectory> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (isExcluded(entry)) {
+                        continue;
+                    }
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        if (recursive) {
+                            subdirectories.add(new ScanDirectory(entry, sink));
+                        }
+                    } else {
+                        File file = entry.toFile();
+                        if (ImageConverter.isSupportedFormat(file) && isIncluded(entry)) {
+                            images.add(file);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                unreadableCount.incrementAndGet();
+                logger.warn("Could not list directory {}", directory, e);
+            }
+
+            if (!images.isEmpty() && !cancelled) {
+                Collections.sort(images);
+                fileCount.addAndGet(images.size());
+                sink.accept(images);
+            }
+            invokeAll(subdirectories);
+        }
+    }
+}
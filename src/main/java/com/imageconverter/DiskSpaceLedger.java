@@ -0,0 +1,320 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps running conversions from filling the disk.
+ * Workers reserve the expected size of an output before writing it and report the bytes
+ * actually written afterwards. Free space of each output volume is polled from its
+ * {@link FileStore} every second, and the bytes written since the last poll are counted
+ * against it, so other processes writing to the same volume are noticed too.
+ * A reservation that would leave less than the minimum free space waits, which pauses
+ * the conversion until space is freed; it then resumes on its own.
+ */
+public class DiskSpaceLedger {
+    private static final Logger logger = LoggerFactory.getLogger(DiskSpaceLedger.class);
+
+    /** System property overriding the minimum free space, in megabytes. */
+    public static final String MIN_FREE_PROPERTY = "imageconverter.minFreeMb";
+
+    /** Free space kept on the output volume by default. */
+    public static final long DEFAULT_MIN_FREE_BYTES = 512L * 1024 * 1024;
+
+    private static final long POLL_MILLIS = 1000;
+    private static final long WAIT_MILLIS = 100;
+
+    private static DiskSpaceLedger shared;
+
+    private final long minFreeBytes;
+    private final Map<File, Volume> volumesByDirectory = new HashMap<>();
+    private final Map<FileStore, Volume> volumes = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService poller;
+    private long pauseCount;
+
+    /**
+     * Receives pause and resume notifications, on the thread of the waiting worker.
+     */
+    public interface Listener {
+        /**
+         * Conversions wait because the volume is nearly full.
+         *
+         * @param volume description of the volume
+         * @param usableBytes free space last seen on the volume
+         * @param minFreeBytes free space that is kept
+         */
+        void paused(String volume, long usableBytes, long minFreeBytes);
+
+        /**
+         * Space was freed and conversions continue.
+         *
+         * @param volume description of the volume
+         */
+        void resumed(String volume);
+    }
+
+    /**
+     * Create a ledger.
+     *
+     * @param minFreeBytes free space to keep on every output volume
+     */
+    public DiskSpaceLedger(long minFreeBytes) {
+        this.minFreeBytes = Math.max(0, minFreeBytes);
+    }
+
+    /**
+     * The ledger shared by all engines of the process, keeping the {@value #MIN_FREE_PROPERTY}
+     * system property or else {@link #DEFAULT_MIN_FREE_BYTES} free.
+     *
+     * @return the shared ledger
+     */
+    public static synchronized DiskSpaceLedger shared() {
+        if (shared == null) {
+            long minFree = DEFAULT_MIN_FREE_BYTES;
+            String configured = System.getProperty(MIN_FREE_PROPERTY);
+            if (configured != null) {
+                try {
+                    minFree = Long.parseLong(configured.trim()) * 1024 * 1024;
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring invalid {}: {}", MIN_FREE_PROPERTY, configured);
+                }
+            }
+            shared = new DiskSpaceLedger(minFree);
+        }
+        return shared;
+    }
+
+    /**
+     * Replace the shared ledger, e.g. from a command-line option. Engines pick it up
+     * for their next batch.
+     *
+     * @param minFreeBytes free space to keep on every output volume
+     */
+    public static synchronized void configureShared(long minFreeBytes) {
+        if (shared != null) {
+            shared.close();
+        }
+        shared = new DiskSpaceLedger(minFreeBytes);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reserve space for an output file, waiting while its volume is nearly full.
+     *
+     * @param outputFile the file that will be written
+     * @param bytes expected size of the file
+     * @param stop checked while waiting; returning true gives up
+     * @return true if reserved, false if {@code stop} became true first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean reserve(File outputFile, long bytes, BooleanSupplier stop) throws InterruptedException {
+        Volume volume = volumeOf(outputFile);
+        if (volume == null) {
+            return true;
+        }
+
+        boolean firstToWait;
+        synchronized (this) {
+            if (volume.fits(bytes, minFreeBytes)) {
+                volume.reserved += bytes;
+                return true;
+            }
+            volume.waiting++;
+            firstToWait = !volume.paused;
+            if (firstToWait) {
+                volume.paused = true;
+                pauseCount++;
+            }
+        }
+        if (firstToWait) {
+            logger.warn("Pausing conversion: {} free on {}, keeping at least {}",
+                       Formats.formatBytes(volume.usable), volume.name, Formats.formatBytes(minFreeBytes));
+            for (Listener listener : listeners) {
+                listener.paused(volume.name, volume.usable, minFreeBytes);
+            }
+        }
+
+        boolean resumed = false;
+        synchronized (this) {
+            try {
+                while (!volume.fits(bytes, minFreeBytes)) {
+                    if (stop.getAsBoolean()) {
+                        return false;
+                    }
+                    wait(WAIT_MILLIS);
+                }
+                volume.reserved += bytes;
+                resumed = volume.paused;
+                volume.paused = false;
+            } finally {
+                volume.waiting--;
+                if (volume.waiting == 0) {
+                    volume.paused = false;
+                }
+            }
+        }
+        if (resumed) {
+            logger.info("Resuming conversion: {} free on {}", Formats.formatBytes(volume.usable), volume.name);
+            for (Listener listener : listeners) {
+                listener.resumed(volume.name);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a reservation once the output is written, or could not be written.
+     *
+     * @param outputFile the file passed to {@link #reserve}
+     * @param reservedBytes the reserved bytes
+     * @param writtenBytes bytes actually written, 0 if the write failed
+     */
+    public void release(File outputFile, long reservedBytes, long writtenBytes) {
+        Volume volume = volumeOf(outputFile);
+        if (volume == null) {
+            return;
+        }
+        synchronized (this) {
+            volume.reserved -= reservedBytes;
+            volume.writtenSincePoll += writtenBytes;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true while a conversion waits for disk space
+     */
+    public synchronized boolean isPaused() {
+        for (Volume volume : volumes.values()) {
+            if (volume.paused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of times conversions were paused for lack of space
+     */
+    public synchronized long getPauseCount() {
+        return pauseCount;
+    }
+
+    public long getMinFreeBytes() {
+        return minFreeBytes;
+    }
+
+    /**
+     * Stop polling the volumes.
+     */
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    /**
+     * Find the volume of an output file, remembered per directory.
+     *
+     * @return the volume, or null if its free space cannot be determined
+     */
+    private Volume volumeOf(File outputFile) {
+        File directory = outputFile.getAbsoluteFile().getParentFile();
+        synchronized (this) {
+            if (volumesByDirectory.containsKey(directory)) {
+                return volumesByDirectory.get(directory);
+            }
+        }
+
+        Volume volume = null;
+        try {
+            FileStore store = Files.getFileStore(directory.toPath());
+            long usable = store.getUsableSpace();
+            synchronized (this) {
+                volume = volumes.computeIfAbsent(store, key -> new Volume(key, usable));
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot monitor free space of {}, not limiting writes there", directory, e);
+        }
+        synchronized (this) {
+            volumesByDirectory.put(directory, volume);
+            if (volume != null && poller == null) {
+                poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "disk-space-poll");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                poller.scheduleWithFixedDelay(this::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return volume;
+    }
+
+    /**
+     * Refresh the free space of every known volume.
+     */
+    private void poll() {
+        List<Volume> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(volumes.values());
+        }
+        for (Volume volume : snapshot) {
+            try {
+                long usable = volume.store.getUsableSpace();
+                synchronized (this) {
+                    volume.usable = usable;
+                    volume.writtenSincePoll = 0;
+                    notifyAll();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Could not poll free space of {}", volume.name, e);
+            }
+        }
+    }
+
+    /**
+     * Free space bookkeeping of one file store. Guarded by the ledger.
+     */
+    private static final class Volume {
+        final FileStore store;
+        final String name;
+        long usable;
+        long writtenSincePoll;
+        long reserved;
+        int waiting;
+        boolean paused;
+
+        Volume(FileStore store, long usable) {
+            this.store = store;
+            this.name = store.toString();
+            this.usable = usable;
+        }
+
+        boolean fits(long bytes, long minFreeBytes) {
+            return usable - writtenSincePoll - reserved - bytes >= minFreeBytes;
+        }
+    }
+}
@@ -15,12 +15,18 @@ public class DiskSpaceValidator {
 
     /**
      * Validate that there is sufficient disk space for the conversion.
+     * The output size is predicted per image from its target dimensions and the compression
+     * ratios learned from previous conversions (see {@link OutputSizeModel}). Only the image
+     * headers are read: trial-encoding samples would decode full images before the batch starts.
      *
      * @param files list of files to be converted
      * @param targetDirectory the directory where WebP files will be saved
+     * @param converter converter with the settings of the batch
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
      * @return ValidationResult with status and message
      */
-    public ValidationResult validateDiskSpace(List<File> files, File targetDirectory) {
+    public ValidationResult validateDiskSpace(List<File> files, File targetDirectory,
+                                              ImageConverter converter, int shortEdgeSize) {
         logger.info("Validating disk space for {} files", files.size());
 
         if (files.isEmpty()) {
@@ -28,10 +34,9 @@ public class DiskSpaceValidator {
         }
 
         // Calculate estimated space needed
-        long estimatedSpaceNeeded = 0;
-        for (File file : files) {
-            estimatedSpaceNeeded += ImageConverter.estimateOutputSize(file);
-        }
+        ConversionPlanner planner = new ConversionPlanner(converter, shortEdgeSize, 1);
+        planner.setSampleCount(0);
+        long estimatedSpaceNeeded = planner.plan(files).getPredictedOutputBytes();
 
         // Apply safety margin
         long requiredSpace = (long) (estimatedSpaceNeeded * SAFETY_MARGIN);
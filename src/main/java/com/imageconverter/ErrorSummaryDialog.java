@@ -51,6 +51,17 @@ public class ErrorSummaryDialog extends Dialog<Void> {
         stats.add(successValue, 1, 1);
         stats.add(failLabel, 0, 2);
         stats.add(failValue, 1, 2);
+        int row = 3;
+        
+        // Files skipped by incremental conversion
+        if (result.getSkippedCount() > 0) {
+            Label skippedLabel = new Label("Skipped (up to date):");
+            skippedLabel.setStyle("-fx-font-weight: bold;");
+            Label skippedValue = new Label(String.valueOf(result.getSkippedCount()));
+            stats.add(skippedLabel, 0, row);
+            stats.add(skippedValue, 1, row);
+            row++;
+        }
         
         // Space saved info
         if (result.getSpaceSaved() > 0) {
@@ -58,12 +69,20 @@ public class ErrorSummaryDialog extends Dialog<Void> {
             savedLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #2196F3;");
             Label savedValue = new Label(formatBytes(result.getSpaceSaved()));
             savedValue.setStyle("-fx-text-fill: #2196F3;");
-            stats.add(savedLabel, 0, 3);
-            stats.add(savedValue, 1, 3);
+            stats.add(savedLabel, 0, row);
+            stats.add(savedValue, 1, row);
         }
         
         content.getChildren().add(stats);
         
+        // Where the time went, collapsed since it is mostly of interest when tuning
+        ConversionMetrics metrics = result.getMetrics();
+        if (metrics.getHistogram(ConversionMetrics.Stage.DECODE).getCount() > 0) {
+            TitledPane performance = new TitledPane("Performance", createMetricsGrid(metrics));
+            performance.setExpanded(false);
+            content.getChildren().add(performance);
+        }
+        
         // Error details (if any)
         if (!result.getErrors().isEmpty()) {
             Label errorHeader = new Label("Errors:");
@@ -102,6 +121,57 @@ public class ErrorSummaryDialog extends Dialog<Void> {
         getDialogPane().getButtonTypes().add(okButton);
     }
     
+    /**
+     * Create a table of the stage timings and the volumes of the batch.
+     */
+    private GridPane createMetricsGrid(ConversionMetrics metrics) {
+        GridPane grid = new GridPane();
+        grid.setHgap(12);
+        grid.setVgap(4);
+        
+        String[] headers = {"Stage", "Count", "p50", "p95", "p99", "Max", "Total"};
+        for (int column = 0; column < headers.length; column++) {
+            Label header = new Label(headers[column]);
+            header.setStyle("-fx-font-weight: bold;");
+            grid.add(header, column, 0);
+        }
+        
+        int row = 1;
+        for (ConversionMetrics.Stage stage : ConversionMetrics.Stage.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(stage);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            grid.add(new Label(stage.getName()), 0, row);
+            grid.add(new Label(String.valueOf(histogram.getCount())), 1, row);
+            grid.add(new Label(formatMillis(histogram.getPercentileNanos(50))), 2, row);
+            grid.add(new Label(formatMillis(histogram.getPercentileNanos(95))), 3, row);
+            grid.add(new Label(formatMillis(histogram.getPercentileNanos(99))), 4, row);
+            grid.add(new Label(formatMillis(histogram.getMaxNanos())), 5, row);
+            grid.add(new Label(String.format("%.1f s", histogram.getTotalNanos() / 1e9)), 6, row);
+            row++;
+        }
+        
+        Label pixels = new Label(String.format("Pixels: %.1f MP in, %.1f MP out",
+                                               metrics.getPixelsIn() / 1e6, metrics.getPixelsOut() / 1e6));
+        grid.add(pixels, 0, ++row, headers.length, 1);
+        Label bytes = new Label("Bytes: " + formatBytes(metrics.getBytesRead()) + " read, "
+                                + formatBytes(metrics.getBytesWritten()) + " written");
+        grid.add(bytes, 0, ++row, headers.length, 1);
+        double wallSeconds = metrics.getWallNanos() / 1e9;
+        if (metrics.getCpuNanos() >= 0 && wallSeconds > 0) {
+            double cpuSeconds = metrics.getCpuNanos() / 1e9;
+            Label cpu = new Label(String.format("CPU time: %.2f s over %.2f s wall (%.1f cores busy)",
+                                                cpuSeconds, wallSeconds, cpuSeconds / wallSeconds));
+            grid.add(cpu, 0, ++row, headers.length, 1);
+        }
+        return grid;
+    }
+    
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+    
     /**
      * Format bytes into human-readable string.
      */
@@ -0,0 +1,154 @@
+package com.imageconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 64-bit xxHash (XXH64) of file contents.
+ * Not cryptographic; used to recognise unchanged sources whose timestamps changed,
+ * e.g. after copying between shares. Large files are hashed through memory-mapped windows.
+ */
+public final class FastHash {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    /** Mapped window size, a multiple of the 32-byte stripe. */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    /** Files below this size are read into the heap; mapping them costs more than it saves. */
+    private static final int MAP_THRESHOLD = 256 * 1024;
+
+    private FastHash() {
+    }
+
+    /**
+     * Hash the contents of a file.
+     *
+     * @param file the file
+     * @return XXH64 of the contents with seed 0
+     * @throws IOException if the file cannot be read
+     */
+    public static long hash(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            State state = new State(size);
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading
+                }
+                buffer.flip();
+                state.update(buffer.order(ByteOrder.LITTLE_ENDIAN));
+                return state.finish(buffer);
+            }
+
+            long position = 0;
+            while (true) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                state.update(window);
+                position += length;
+                if (position >= size) {
+                    return state.finish(window);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash a buffer from its position to its limit.
+     *
+     * @param buffer the data
+     * @return XXH64 of the remaining bytes with seed 0
+     */
+    public static long hash(ByteBuffer buffer) {
+        ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        State state = new State(data.remaining());
+        state.update(data);
+        return state.finish(data);
+    }
+
+    /**
+     * Streaming XXH64 state. {@link #update} consumes whole 32-byte stripes,
+     * {@link #finish} the remaining tail of the last buffer.
+     */
+    private static final class State {
+        private final long totalLength;
+        private long v1 = PRIME1 + PRIME2;
+        private long v2 = PRIME2;
+        private long v3 = 0;
+        private long v4 = -PRIME1;
+
+        State(long totalLength) {
+            this.totalLength = totalLength;
+        }
+
+        void update(ByteBuffer data) {
+            int index = data.position();
+            int end = data.limit() - 32;
+            for (; index <= end; index += 32) {
+                v1 = round(v1, data.getLong(index));
+                v2 = round(v2, data.getLong(index + 8));
+                v3 = round(v3, data.getLong(index + 16));
+                v4 = round(v4, data.getLong(index + 24));
+            }
+            data.position(index);
+        }
+
+        long finish(ByteBuffer tail) {
+            long hash;
+            if (totalLength >= 32) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = merge(hash, v1);
+                hash = merge(hash, v2);
+                hash = merge(hash, v3);
+                hash = merge(hash, v4);
+            } else {
+                hash = PRIME5;
+            }
+            hash += totalLength;
+
+            int index = tail.position();
+            int limit = tail.limit();
+            for (; index + 8 <= limit; index += 8) {
+                hash ^= round(0, tail.getLong(index));
+                hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            }
+            if (index + 4 <= limit) {
+                hash ^= (tail.getInt(index) & 0xFFFFFFFFL) * PRIME1;
+                hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+                index += 4;
+            }
+            for (; index < limit; index++) {
+                hash ^= (tail.get(index) & 0xFF) * PRIME5;
+                hash = Long.rotateLeft(hash, 11) * PRIME1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME2;
+            hash ^= hash >>> 29;
+            hash *= PRIME3;
+            hash ^= hash >>> 32;
+            return hash;
+        }
+
+        private static long round(long accumulator, long input) {
+            accumulator += input * PRIME2;
+            accumulator = Long.rotateLeft(accumulator, 31);
+            return accumulator * PRIME1;
+        }
+
+        private static long merge(long hash, long value) {
+            hash ^= round(0, value);
+            return hash * PRIME1 + PRIME4;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.imageconverter;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Stream of files handed to a {@link ConversionEngine}.
+ * A producer (e.g. a {@link DirectoryScanner}) adds files while engine workers take them,
+ * so conversion can start before all files are known. The producer closes the feed
+ * when no more files will come.
+ */
+public class FileFeed {
+    private static final long POLL_MILLIS = 100;
+
+    private final Deque<File> pending = new ArrayDeque<>();
+    private int publishedCount;
+    private boolean closed;
+
+    /**
+     * Create a closed feed containing a fixed list of files.
+     *
+     * @param files the files
+     * @return the feed
+     */
+    public static FileFeed of(List<File> files) {
+        FileFeed feed = new FileFeed();
+        feed.addAll(files);
+        feed.close();
+        return feed;
+    }
+
+    /**
+     * Publish a file.
+     *
+     * @param file the file
+     */
+    public synchronized void add(File file) {
+        if (closed) {
+            throw new IllegalStateException("Feed is closed");
+        }
+        pending.addLast(file);
+        publishedCount++;
+        notifyAll();
+    }
+
+    /**
+     * Publish several files.
+     *
+     * @param files the files
+     */
+    public synchronized void addAll(Collection<File> files) {
+        if (closed) {
+            throw new IllegalStateException("Feed is closed");
+        }
+        pending.addAll(files);
+        publishedCount += files.size();
+        notifyAll();
+    }
+
+    /**
+     * Mark the end of the feed. Consumers drain the remaining files and then stop.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Take the next file, waiting while the producer is still running.
+     *
+     * @param stop checked while waiting; returning true ends the wait
+     * @return the next file, or null when the feed is closed and drained or {@code stop} became true
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized File next(BooleanSupplier stop) throws InterruptedException {
+        while (pending.isEmpty()) {
+            if (closed || stop.getAsBoolean()) {
+                return null;
+            }
+            wait(POLL_MILLIS);
+        }
+        return pending.pollFirst();
+    }
+
+    /**
+     * @return number of files published so far
+     */
+    public synchronized int getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * @return number of files published but not yet taken by the engine
+     */
+    public synchronized int getQueuedCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return true once the producer has closed the feed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return total number of files if the feed is closed, -1 while files may still be added
+     */
+    public synchronized int getKnownSize() {
+        return closed ? publishedCount : -1;
+    }
+}
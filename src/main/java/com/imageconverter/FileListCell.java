@@ -0,0 +1,44 @@
+package com.imageconverter;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+/**
+ * Row of the file list: the file's path relative to the scanned directory
+ * and its conversion status, read from the list's {@link FileListModel}.
+ */
+public class FileListCell extends ListCell<Integer> {
+    private final Label nameLabel = new Label();
+    private final Label statusLabel = new Label();
+    private final HBox content = new HBox(10, nameLabel, statusLabel);
+
+    public FileListCell() {
+        content.setAlignment(Pos.CENTER_LEFT);
+        nameLabel.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(nameLabel, Priority.ALWAYS);
+        statusLabel.getStyleClass().add("file-status");
+    }
+
+    @Override
+    protected void updateItem(Integer row, boolean empty) {
+        super.updateItem(row, empty);
+        setText(null);
+        if (empty || row == null || !(getListView().getItems() instanceof FileListModel)) {
+            setGraphic(null);
+            return;
+        }
+
+        FileListModel model = (FileListModel) getListView().getItems();
+        FileStatus status = model.getStatus(row);
+        nameLabel.setText(model.getDisplayName(row));
+        statusLabel.setText(status.getLabel());
+        for (FileStatus other : FileStatus.values()) {
+            statusLabel.getStyleClass().remove(other.getStyleClass());
+        }
+        statusLabel.getStyleClass().add(status.getStyleClass());
+        setGraphic(content);
+    }
+}
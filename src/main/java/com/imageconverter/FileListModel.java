@@ -0,0 +1,257 @@
+package com.imageconverter;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Backing list of the file list view. Items are row indices; the files are kept in
+ * sorted per-directory arrays as published by the {@link DirectoryScanner} or the
+ * {@link HotFolderWatcher} and the status of each row in a byte array, so a row costs
+ * a reference and a byte rather than a String and a cell. Names are only built for
+ * the rows on screen. A file that is posted again keeps its existing row.
+ *
+ * <p>Files and status changes may be posted from any thread. They are applied on the
+ * FX thread once per pulse, and status changes only update the rows between the first and
+ * the last changed one.
+ */
+public class FileListModel extends ObservableListBase<Integer> {
+    private static final FileStatus[] STATUSES = FileStatus.values();
+
+    private final Path root;
+
+    // FX thread only
+    private final List<Group> groups = new ArrayList<>();
+    private final Map<File, List<Group>> groupsByDirectory = new HashMap<>();
+    private byte[] statuses = new byte[1024];
+    private int size;
+    private FileStatus defaultStatus = FileStatus.NONE;
+
+    // Posted from any thread
+    private final ConcurrentLinkedQueue<List<File>> pendingFiles = new ConcurrentLinkedQueue<>();
+    private final Map<File, FileStatus> pendingStatuses = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Create an empty model.
+     *
+     * @param root directory the files are shown relative to
+     */
+    public FileListModel(File root) {
+        this.root = root.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Append images. Safe to call from any thread.
+     *
+     * @param files images to show; usually those of a single directory
+     */
+    public void postFiles(List<File> files) {
+        pendingFiles.add(files);
+        scheduleFlush();
+    }
+
+    /**
+     * Change the status of a file. Safe to call from any thread; when a file changes
+     * several times before the next pulse only the latest status is applied.
+     *
+     * @param file a file previously posted to this model
+     * @param status the new status
+     */
+    public void postStatus(File file, FileStatus status) {
+        pendingStatuses.put(file, status);
+        scheduleFlush();
+    }
+
+    /**
+     * Set every row, and rows added later, to a status. Does not fire per-row changes;
+     * call {@code ListView.refresh()} afterwards. FX thread only.
+     *
+     * @param status the status
+     */
+    public void resetStatuses(FileStatus status) {
+        pendingStatuses.clear();
+        Arrays.fill(statuses, 0, size, (byte) status.ordinal());
+        defaultStatus = status;
+    }
+
+    /**
+     * Set the status of rows added from now on. FX thread only.
+     *
+     * @param status the status
+     */
+    public void setDefaultStatus(FileStatus status) {
+        defaultStatus = status;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row row index
+     * @return the file shown in the row
+     */
+    public File getFile(int row) {
+        Group group = groupOf(row);
+        return group.files[row - group.firstRow];
+    }
+
+    /**
+     * @param row row index
+     * @return path of the file relative to the scanned directory
+     */
+    public String getDisplayName(int row) {
+        return root.relativize(getFile(row).toPath().toAbsolutePath()).toString();
+    }
+
+    /**
+     * @param row row index
+     * @return conversion status of the row
+     */
+    public FileStatus getStatus(int row) {
+        return STATUSES[statuses[row]];
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Apply the posted files and status changes: one change adding the new rows, then one
+     * update of the rows from the first to the last changed one. A {@code ListCell} only
+     * refreshes for the last sub-change of a change, and as its item, the row index, stays
+     * the same, separate sub-changes per row would leave all but the last row stale.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        int firstNewRow = size;
+        List<File> files;
+        while ((files = pendingFiles.poll()) != null) {
+            append(files);
+        }
+
+        int firstChanged = Integer.MAX_VALUE;
+        int lastChanged = -1;
+        for (File file : pendingStatuses.keySet()) {
+            FileStatus status = pendingStatuses.remove(file);
+            if (status == null) {
+                continue;
+            }
+            int row = indexOf(file);
+            if (row < 0) {
+                // Its directory is still on the way; apply with the next flush
+                pendingStatuses.putIfAbsent(file, status);
+                continue;
+            }
+            statuses[row] = (byte) status.ordinal();
+            if (row < firstNewRow) {
+                firstChanged = Math.min(firstChanged, row);
+                lastChanged = Math.max(lastChanged, row);
+            }
+        }
+
+        if (size > firstNewRow) {
+            beginChange();
+            nextAdd(firstNewRow, size);
+            endChange();
+        }
+        if (lastChanged >= 0) {
+            beginChange();
+            // Consecutive updates are merged into a single sub-change
+            for (int row = firstChanged; row <= lastChanged; row++) {
+                nextUpdate(row);
+            }
+            endChange();
+        }
+    }
+
+    private void append(List<File> files) {
+        Map<File, List<File>> newFilesByDirectory = new HashMap<>();
+        for (File file : files) {
+            if (indexOf(file) < 0) {
+                newFilesByDirectory.computeIfAbsent(file.getAbsoluteFile().getParentFile(), key -> new ArrayList<>())
+                    .add(file);
+            }
+        }
+        for (Map.Entry<File, List<File>> entry : newFilesByDirectory.entrySet()) {
+            File[] directoryFiles = entry.getValue().toArray(new File[0]);
+            Arrays.sort(directoryFiles);
+            Group group = new Group(directoryFiles, size);
+            groups.add(group);
+            groupsByDirectory.computeIfAbsent(entry.getKey(), key -> new ArrayList<>(1)).add(group);
+            grow(group.files.length);
+        }
+    }
+
+    private void grow(int rows) {
+        int newSize = size + rows;
+        if (newSize > statuses.length) {
+            statuses = Arrays.copyOf(statuses, Math.max(newSize, statuses.length * 2));
+        }
+        Arrays.fill(statuses, size, newSize, (byte) defaultStatus.ordinal());
+        size = newSize;
+    }
+
+    private int indexOf(File file) {
+        List<Group> directoryGroups = groupsByDirectory.get(file.getAbsoluteFile().getParentFile());
+        if (directoryGroups == null) {
+            return -1;
+        }
+        for (Group group : directoryGroups) {
+            int index = Arrays.binarySearch(group.files, file);
+            if (index >= 0) {
+                return group.firstRow + index;
+            }
+        }
+        return -1;
+    }
+
+    private Group groupOf(int row) {
+        int low = 0;
+        int high = groups.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (groups.get(mid).firstRow <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return groups.get(low);
+    }
+
+    /**
+     * The images of one directory and the row of the first one.
+     */
+    private static final class Group {
+        final File[] files;
+        final int firstRow;
+
+        Group(File[] files, int firstRow) {
+            this.files = files;
+            this.firstRow = firstRow;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.imageconverter;
+
+/**
+ * Conversion state of a file shown in the file list.
+ */
+public enum FileStatus {
+    NONE(""),
+    QUEUED("Queued"),
+    CONVERTING("Converting"),
+    DONE("Done"),
+    FAILED("Failed"),
+    SKIPPED("Skipped");
+
+    private final String label;
+
+    FileStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return text shown next to the file name, empty for {@link #NONE}
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return CSS style class of the status label
+     */
+    public String getStyleClass() {
+        return "status-" + name().toLowerCase();
+    }
+}
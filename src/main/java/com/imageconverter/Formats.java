@@ -0,0 +1,45 @@
+package com.imageconverter;
+
+/**
+ * Formatting helpers shared by the command-line and reporting code.
+ */
+public final class Formats {
+
+    private Formats() {
+    }
+
+    /**
+     * Format bytes into human-readable string.
+     *
+     * @param bytes number of bytes (may be negative)
+     * @return formatted string (e.g., "1.5 MB")
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 0) {
+            return "-" + formatBytes(-bytes);
+        }
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.2f KB", bytes / 1024.0);
+        } else if (bytes < 1024 * 1024 * 1024) {
+            return String.format("%.2f MB", bytes / (1024.0 * 1024.0));
+        } else {
+            return String.format("%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+        }
+    }
+
+    /**
+     * Format a duration, in seconds below a minute and as h:mm:ss above.
+     *
+     * @param seconds the duration
+     * @return formatted string (e.g., "12.5 s" or "1:02:03")
+     */
+    public static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        if (total < 60) {
+            return String.format("%.1f s", seconds);
+        }
+        return String.format("%d:%02d:%02d", total / 3600, total / 60 % 60, total % 60);
+    }
+}
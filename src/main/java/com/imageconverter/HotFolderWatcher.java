@@ -0,0 +1,302 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Watches a hot folder and publishes new or modified images once they are completely written.
+ * Every create/modify event only records the file; a file is published after its size and
+ * modification time have not changed for the settle time, so copies in progress are not
+ * picked up and a burst of events for the same file results in a single conversion.
+ * All files that settle in the same check are published together. Files that stay empty,
+ * e.g. placeholders or aborted copies, are dropped after {@value #EMPTY_EXPIRY_SETTLE_TIMES}
+ * settle times; writing to them later brings them back.
+ */
+public class HotFolderWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(HotFolderWatcher.class);
+
+    /** Default time a file must stay unchanged before it is converted. */
+    public static final long DEFAULT_SETTLE_MILLIS = 2000;
+
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    /** Settle times an empty file is kept waiting for content. */
+    private static final int EMPTY_EXPIRY_SETTLE_TIMES = 5;
+
+    private final Path root;
+    private final boolean recursive;
+    private final long settleMillis;
+    private final Map<Path, Candidate> settling = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final LongAdder publishedTotal = new LongAdder();
+
+    private volatile Consumer<List<File>> sink;
+    private volatile boolean running;
+    private WatchService watchService;
+    private ScheduledExecutorService settleTimer;
+    private Thread watchThread;
+    private long startMillis;
+
+    /**
+     * Create a watcher.
+     *
+     * @param directory the hot folder
+     * @param recursive true to also watch subdirectories, including ones created later
+     * @param settleMillis time a file must stay unchanged before it is published
+     */
+    public HotFolderWatcher(File directory, boolean recursive, long settleMillis) {
+        this.root = directory.toPath().toAbsolutePath().normalize();
+        this.recursive = recursive;
+        this.settleMillis = Math.max(100, settleMillis);
+    }
+
+    /**
+     * Start watching. Only files created or modified from now on are published.
+     *
+     * @param sink receives settled images, called from the watcher's timer thread
+     * @throws IOException if the folder cannot be watched
+     */
+    public synchronized void start(Consumer<List<File>> sink) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Watcher already running");
+        }
+        this.sink = sink;
+        startMillis = System.currentTimeMillis();
+        watchService = root.getFileSystem().newWatchService();
+        register(root);
+        running = true;
+
+        watchThread = new Thread(this::processEvents, "hot-folder-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        settleTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-folder-settle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(50, settleMillis / 4);
+        settleTimer.scheduleWithFixedDelay(this::publishSettled, period, period, TimeUnit.MILLISECONDS);
+        logger.info("Watching {}{} (settle time {} ms)", root, recursive ? " recursively" : "", settleMillis);
+    }
+
+    /**
+     * Stop watching. Files that have not settled yet are dropped. Returns once a settle check
+     * in progress has finished, so nothing is handed to the sink afterwards and the caller
+     * may close the sink's feed.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        settleTimer.shutdownNow();
+        try {
+            if (!settleTimer.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Settle check in {} did not finish within {} seconds", root, STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Could not close watch service", e);
+        }
+        watchThread.interrupt();
+        settling.clear();
+        logger.info("Stopped watching {} after publishing {} file(s)", root, publishedTotal.sum());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public File getDirectory() {
+        return root.toFile();
+    }
+
+    /**
+     * @return files seen but still waiting to stop changing
+     */
+    public int getSettlingCount() {
+        return settling.size();
+    }
+
+    /**
+     * @return files published since the watcher was started
+     */
+    public long getPublishedTotal() {
+        return publishedTotal.sum();
+    }
+
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirectories.put(key, directory);
+        if (!recursive) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    register(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record events until the watch service is closed.
+     */
+    private void processEvents() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    logger.warn("Watch events overflowed in {}, rechecking recently modified files", directory);
+                    recheck(directory != null ? directory : root, true);
+                } else if (directory != null) {
+                    onChange(directory.resolve((Path) event.context()),
+                             event.kind() == StandardWatchEventKinds.ENTRY_CREATE);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    private void onChange(Path path, boolean created) {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (recursive && created) {
+                try {
+                    register(path);
+                    // Files may have been moved in together with the directory
+                    recheck(path, false);
+                } catch (IOException e) {
+                    logger.warn("Could not watch new directory {}", path, e);
+                }
+            }
+            return;
+        }
+        if (ImageConverter.isSupportedFormat(path.toFile())) {
+            // Re-arm the settle timer of a file that is still being written
+            settling.compute(path, (key, candidate) -> new Candidate(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Pick up images events were not received for: those of a directory that was
+     * moved in, or those modified since the watcher started after events were lost.
+     */
+    private void recheck(Path directory, boolean onlyModifiedSinceStart) {
+        List<File> files = new DirectoryScanner(directory.toFile(), recursive,
+                                                List.of(), List.of()).scanAll();
+        for (File file : files) {
+            if (!onlyModifiedSinceStart || file.lastModified() >= startMillis) {
+                settling.putIfAbsent(file.toPath(), new Candidate(System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Publish the files whose size and modification time stayed the same for the settle time.
+     */
+    private void publishSettled() {
+        try {
+            long now = System.nanoTime();
+            List<File> settled = new ArrayList<>();
+            for (Map.Entry<Path, Candidate> entry : settling.entrySet()) {
+                Path path = entry.getKey();
+                Candidate candidate = entry.getValue();
+                long size;
+                long modified;
+                try {
+                    size = Files.size(path);
+                    modified = Files.getLastModifiedTime(path).toMillis();
+                } catch (NoSuchFileException e) {
+                    // Deleted or renamed away, e.g. a temporary upload name
+                    settling.remove(path, candidate);
+                    continue;
+                } catch (IOException e) {
+                    // E.g. locked by the copying process; try again with the next check
+                    continue;
+                }
+
+                long unchangedNanos = now - candidate.changedNanos;
+                if (size != candidate.size || modified != candidate.modified) {
+                    settling.replace(path, candidate, candidate.changed(size, modified, now));
+                } else if (size > 0) {
+                    if (unchangedNanos >= settleMillis * 1_000_000L && settling.remove(path, candidate)) {
+                        settled.add(path.toFile());
+                    }
+                } else if (unchangedNanos >= EMPTY_EXPIRY_SETTLE_TIMES * settleMillis * 1_000_000L
+                        && settling.remove(path, candidate)) {
+                    // The write that fills it later raises a new event
+                    logger.debug("Dropping {}, still empty after {} ms", path, unchangedNanos / 1_000_000);
+                }
+            }
+
+            if (!settled.isEmpty() && running) {
+                publishedTotal.add(settled.size());
+                logger.info("Queueing {} settled file(s) from {}", settled.size(), root);
+                sink.accept(settled);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error while checking settled files in {}", root, e);
+        }
+    }
+
+    /**
+     * Last observed state of a file waiting to settle.
+     */
+    private static final class Candidate {
+        final long size;
+        final long modified;
+        final long changedNanos;
+
+        Candidate(long changedNanos) {
+            this(-1, -1, changedNanos);
+        }
+
+        private Candidate(long size, long modified, long changedNanos) {
+            this.size = size;
+            this.modified = modified;
+            this.changedNanos = changedNanos;
+        }
+
+        Candidate changed(long size, long modified, long changedNanos) {
+            return new Candidate(size, modified, changedNanos);
+        }
+    }
+}
@@ -5,14 +5,21 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.function.BooleanSupplier;
 
 /**
  * Core class for image conversion operations.
@@ -22,6 +29,269 @@ public class ImageConverter {
     private static final Logger logger = LoggerFactory.getLogger(ImageConverter.class);
     private static final float WEBP_QUALITY = 0.90f;
     private static final String[] SUPPORTED_FORMATS = {"jpg", "jpeg", "png", "bmp"};
+    private static final WebPWriterPool WRITER_POOL = new WebPWriterPool(WEBP_QUALITY);
+    private static final ThreadLocal<EncodeBuffer> ENCODE_BUFFERS = ThreadLocal.withInitial(EncodeBuffer::new);
+    /** File size passed on by callers that have not read it. */
+    private static final long UNKNOWN_SIZE = -1;
+
+    private volatile boolean subsampledDecode = true;
+    private volatile ResizeMode resizeMode = ResizeMode.SINGLE_PASS;
+    private volatile BooleanSupplier parallelResize = () -> false;
+    private volatile boolean incremental;
+    private volatile boolean forceRebuild;
+    private volatile MemoryBudget memoryBudget;
+    private volatile OutputSizeModel outputSizeModel;
+    private volatile DiskSpaceLedger diskSpaceLedger;
+    private volatile ConversionMetrics metrics;
+
+    /**
+     * Enable or disable subsampled decoding of images that will be downscaled a lot.
+     *
+     * @param subsampledDecode true to decode at a reduced resolution when possible (default)
+     */
+    public void setSubsampledDecode(boolean subsampledDecode) {
+        this.subsampledDecode = subsampledDecode;
+    }
+
+    public boolean isSubsampledDecode() {
+        return subsampledDecode;
+    }
+
+    /**
+     * Set the algorithm used by {@link #resizeByShortEdge}.
+     *
+     * @param resizeMode resize algorithm (default {@link ResizeMode#SINGLE_PASS})
+     */
+    public void setResizeMode(ResizeMode resizeMode) {
+        this.resizeMode = resizeMode;
+    }
+
+    public ResizeMode getResizeMode() {
+        return resizeMode;
+    }
+
+    /**
+     * Enable or disable splitting each resize into row bands processed on the common ForkJoinPool.
+     * Useful when a batch holds fewer images than there are cores; the output is bit-identical
+     * to the single-threaded result. Applies to the resampler modes and the halving steps of
+     * {@link ResizeMode#PROGRESSIVE}; Java2D bicubic passes stay single-threaded.
+     *
+     * @param parallelResize true to resize each image on several threads
+     */
+    public void setParallelResize(boolean parallelResize) {
+        setParallelResize(() -> parallelResize);
+    }
+
+    /**
+     * Split resizes into row bands while a condition holds. The condition is checked as each
+     * resize starts, so an engine can switch to band parallelism once the files left in its
+     * batch no longer keep every core busy.
+     *
+     * @param condition true if the next resize should run on several threads
+     */
+    public void setParallelResize(BooleanSupplier condition) {
+        this.parallelResize = condition;
+    }
+
+    /**
+     * @return true if a resize starting now would be split into row bands
+     */
+    public boolean isParallelResize() {
+        return parallelResize.getAsBoolean();
+    }
+
+    /**
+     * Enable or disable incremental conversion: files whose WebP output is up to date
+     * with the source and the current settings are skipped.
+     *
+     * @param incremental true to skip up-to-date files
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Force every file to be converted again, even in incremental mode.
+     * Up-to-date information is still recorded for later incremental runs.
+     *
+     * @param forceRebuild true to ignore existing outputs
+     */
+    public void setForceRebuild(boolean forceRebuild) {
+        this.forceRebuild = forceRebuild;
+    }
+
+    public boolean isForceRebuild() {
+        return forceRebuild;
+    }
+
+    /**
+     * Describe every setting that influences the produced WebP files.
+     * Outputs created with a different fingerprint are considered out of date.
+     *
+     * @param shortEdgeSize desired size of the shorter edge (0 or negative for no resize)
+     * @return settings fingerprint
+     */
+    public String getSettingsFingerprint(int shortEdgeSize) {
+        return String.format("quality=%.2f;shortEdge=%d;resize=%s;subsampling=%b",
+                             WEBP_QUALITY, Math.max(0, shortEdgeSize), resizeMode.getName(),
+                             subsampledDecode && shortEdgeSize > 0);
+    }
+
+    /**
+     * Create the up-to-date checker for a batch.
+     *
+     * @param shortEdgeSize desired size of the shorter edge (0 or negative for no resize)
+     * @return checker, or null if neither incremental mode nor a forced rebuild is requested
+     */
+    public UpToDateChecker createUpToDateChecker(int shortEdgeSize) {
+        if (!incremental && !forceRebuild) {
+            return null;
+        }
+        return new UpToDateChecker(getSettingsFingerprint(shortEdgeSize), incremental && !forceRebuild);
+    }
+
+    /**
+     * Set the budget limiting the memory of images converted at the same time.
+     *
+     * @param memoryBudget the budget, or null for the process-wide {@link MemoryBudget#shared()} budget
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        MemoryBudget budget = memoryBudget;
+        return budget != null ? budget : MemoryBudget.shared();
+    }
+
+    /**
+     * Set the ledger that pauses writes while the output volume is nearly full.
+     *
+     * @param diskSpaceLedger the ledger, or null for the process-wide {@link DiskSpaceLedger#shared()} ledger
+     */
+    public void setDiskSpaceLedger(DiskSpaceLedger diskSpaceLedger) {
+        this.diskSpaceLedger = diskSpaceLedger;
+    }
+
+    public DiskSpaceLedger getDiskSpaceLedger() {
+        DiskSpaceLedger ledger = diskSpaceLedger;
+        return ledger != null ? ledger : DiskSpaceLedger.shared();
+    }
+
+    /**
+     * Set the metrics that conversions record their stage timings, pixels and bytes in.
+     * Engines set fresh metrics for every batch.
+     *
+     * @param metrics the metrics, or null to record nothing
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ConversionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the model that learns and predicts output sizes.
+     *
+     * @param outputSizeModel the model, or null for the process-wide {@link OutputSizeModel#shared()} model
+     */
+    public void setOutputSizeModel(OutputSizeModel outputSizeModel) {
+        this.outputSizeModel = outputSizeModel;
+    }
+
+    public OutputSizeModel getOutputSizeModel() {
+        OutputSizeModel model = outputSizeModel;
+        return model != null ? model : OutputSizeModel.shared();
+    }
+
+    /**
+     * Predict the size of the WebP output of an image with the current settings, from the
+     * output dimensions and the compression ratios of previous conversions.
+     *
+     * @param file the image file
+     * @param info dimensions from the image header
+     * @param shortEdgeSize desired size of the shorter edge (0 or negative for no resize)
+     * @return predicted bytes
+     */
+    public long estimateOutputSize(File file, ImageInfo info, int shortEdgeSize) {
+        Dimension decoded = computeDecodedSize(info, shortEdgeSize);
+        Dimension target = computeTargetSize(decoded.width, decoded.height, shortEdgeSize);
+        return getOutputSizeModel().estimate(file, shortEdgeSize > 0, (long) target.width * target.height);
+    }
+
+    /**
+     * Teach the output size model the result of a conversion.
+     *
+     * @param file the source image
+     * @param shortEdgeSize the short edge it was resized to (0 or negative for no resize)
+     * @param outputPixels pixels of the encoded image
+     * @param outputBytes size of the WebP data
+     */
+    public void recordOutputSize(File file, int shortEdgeSize, long outputPixels, long outputBytes) {
+        getOutputSizeModel().record(file, shortEdgeSize > 0, outputPixels, outputBytes);
+    }
+
+    /**
+     * Estimate the peak memory needed to convert a file, from its header.
+     *
+     * @param file the image file
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @return estimated bytes, or 0 if the header cannot be read
+     */
+    public long estimateMemoryBytes(File file, int shortEdgeSize) {
+        ImageInfo info = ImageInfo.read(file);
+        return info != null ? estimateMemoryBytes(info, shortEdgeSize) : 0;
+    }
+
+    /**
+     * Estimate the peak memory needed to convert an image with the current settings:
+     * the decoded pixels (after subsampling), the resized copy and the resizer's intermediate
+     * image, and the encoder's ARGB copy of the output.
+     *
+     * @param info dimensions from the image header
+     * @param shortEdgeSize desired size of the shorter edge (0 for no resize)
+     * @return estimated bytes
+     */
+    public long estimateMemoryBytes(ImageInfo info, int shortEdgeSize) {
+        Dimension decoded = computeDecodedSize(info, shortEdgeSize);
+        long decodedWidth = decoded.width;
+        long decodedHeight = decoded.height;
+        long bytes = decodedWidth * decodedHeight * info.getBytesPerPixel();
+
+        Dimension target = computeTargetSize(decoded.width, decoded.height, shortEdgeSize);
+        long targetPixels = (long) target.width * target.height;
+        if (shortEdgeSize > 0) {
+            bytes += targetPixels * 4;
+            if (resizeMode.getFilter() != null) {
+                // Horizontally resized planes of the separable resampler
+                bytes += (long) target.width * decodedHeight * 3;
+            } else if (resizeMode == ResizeMode.PROGRESSIVE) {
+                // First halving step, a quarter of the pixels at 4 bytes each
+                bytes += decodedWidth * decodedHeight;
+            }
+        }
+        bytes += targetPixels * 4;
+        return Math.max(1, bytes);
+    }
+
+    /**
+     * Compute the size an image is decoded at with the current settings, i.e. after
+     * source subsampling by {@link #loadImage(File, int)}.
+     *
+     * @param info dimensions from the image header
+     * @param shortEdgeSize desired size of the shorter edge (0 or negative for no resize)
+     * @return decoded dimensions
+     */
+    public Dimension computeDecodedSize(ImageInfo info, int shortEdgeSize) {
+        int factor = subsampledDecode ? computeSubsampling(info.getWidth(), info.getHeight(), shortEdgeSize) : 1;
+        return new Dimension((info.getWidth() + factor - 1) / factor, (info.getHeight() + factor - 1) / factor);
+    }
 
     /**
      * Load an image from file.
@@ -30,15 +300,32 @@ public class ImageConverter {
      * @return BufferedImage or null if loading fails
      */
     public BufferedImage loadImage(File file) {
+        return loadImage(file, UNKNOWN_SIZE);
+    }
+
+    private BufferedImage loadImage(File file, long fileSize) {
+        ConversionEvents.Decode event = new ConversionEvents.Decode();
+        event.begin();
+        long startNanos = System.nanoTime();
         try {
-            logger.info("Loading image: {}", file.getAbsolutePath());
+            logger.debug("Loading image: {}", file);
             BufferedImage image = ImageIO.read(file);
             if (image == null) {
                 logger.error("Failed to load image (unsupported format): {}", file.getName());
                 return null;
             }
-            logger.debug("Image loaded successfully: {} ({}x{})", file.getName(), 
-                        image.getWidth(), image.getHeight());
+            recordDecode(startNanos, (long) image.getWidth() * image.getHeight(), file, fileSize);
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.sourceWidth = event.width = image.getWidth();
+                event.sourceHeight = event.height = image.getHeight();
+                event.bytes = sizeOf(file, fileSize);
+                event.commit();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Image loaded successfully: {} ({}x{})", file.getName(),
+                            image.getWidth(), image.getHeight());
+            }
             return image;
         } catch (IOException e) {
             logger.error("Error loading image: {}", file.getName(), e);
@@ -46,6 +333,97 @@ public class ImageConverter {
         }
     }
 
+    /**
+     * Load an image from file for resizing to the given short edge.
+     * The image dimensions are read from the header first; if the image is at least twice
+     * as large as needed, it is decoded with source subsampling at the largest integer factor
+     * that keeps the short edge at or above the target, and the resize finishes the job.
+     *
+     * @param file the image file to load
+     * @param shortEdgeSize the short edge the image will be resized to (0 or negative for no resize)
+     * @return BufferedImage or null if loading fails
+     */
+    public BufferedImage loadImage(File file, int shortEdgeSize) {
+        return loadImage(file, shortEdgeSize, UNKNOWN_SIZE);
+    }
+
+    /**
+     * Load an image from file for resizing to the given short edge, see {@link #loadImage(File, int)}.
+     *
+     * @param file the image file to load
+     * @param shortEdgeSize the short edge the image will be resized to (0 or negative for no resize)
+     * @param fileSize size of the file if the caller already has it, saving another stat; -1 if unknown
+     * @return BufferedImage or null if loading fails
+     */
+    public BufferedImage loadImage(File file, int shortEdgeSize, long fileSize) {
+        if (!subsampledDecode || shortEdgeSize <= 0) {
+            return loadImage(file, fileSize);
+        }
+
+        ConversionEvents.Decode event = new ConversionEvents.Decode();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            logger.debug("Loading image: {}", file);
+            Iterator<ImageReader> readers = iis != null ? ImageIO.getImageReaders(iis) : null;
+            if (readers == null || !readers.hasNext()) {
+                logger.error("Failed to load image (unsupported format): {}", file.getName());
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int factor = computeSubsampling(width, height, shortEdgeSize);
+
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                if (factor > 1) {
+                    readParam.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                BufferedImage image = reader.read(0, readParam);
+                recordDecode(startNanos, (long) width * height, file, fileSize);
+                if (event.shouldCommit()) {
+                    event.path = file.getPath();
+                    event.sourceWidth = width;
+                    event.sourceHeight = height;
+                    event.width = image.getWidth();
+                    event.height = image.getHeight();
+                    event.bytes = sizeOf(file, fileSize);
+                    event.commit();
+                }
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Image loaded successfully: {} ({}x{}, subsampling {})", file.getName(),
+                                image.getWidth(), image.getHeight(), factor);
+                }
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.error("Error loading image: {}", file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Compute the source subsampling factor for decoding an image that will be resized.
+     *
+     * @param width source width
+     * @param height source height
+     * @param shortEdgeSize target short edge (0 or negative for no resize)
+     * @return largest factor keeping the decoded short edge at or above the target, at least 1
+     */
+    public static int computeSubsampling(int width, int height, int shortEdgeSize) {
+        int shortEdge = Math.min(width, height);
+        if (shortEdgeSize <= 0 || shortEdge <= shortEdgeSize) {
+            return 1;
+        }
+        return Math.max(1, shortEdge / shortEdgeSize);
+    }
+
     /**
      * Resize image by specifying the shorter edge dimension.
      * The longer edge is calculated automatically to maintain aspect ratio.
@@ -55,6 +433,18 @@ public class ImageConverter {
      * @return resized BufferedImage
      */
     public BufferedImage resizeByShortEdge(BufferedImage original, int shortEdgeSize) {
+        return resizeByShortEdge(original, shortEdgeSize, null);
+    }
+
+    /**
+     * Resize image by specifying the shorter edge dimension.
+     *
+     * @param original the original image
+     * @param shortEdgeSize the desired size of the shorter edge in pixels
+     * @param source file the image was loaded from, reported in Flight Recorder events; may be null
+     * @return resized BufferedImage
+     */
+    public BufferedImage resizeByShortEdge(BufferedImage original, int shortEdgeSize, File source) {
         int originalWidth = original.getWidth();
         int originalHeight = original.getHeight();
 
@@ -64,32 +454,136 @@ public class ImageConverter {
             return original;
         }
 
-        int newWidth, newHeight;
-        
+        Dimension target = computeTargetSize(originalWidth, originalHeight, shortEdgeSize);
+        int newWidth = target.width;
+        int newHeight = target.height;
+
+        boolean parallel = parallelResize.getAsBoolean();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Resizing image from {}x{} to {}x{} ({}{})",
+                        originalWidth, originalHeight, newWidth, newHeight, resizeMode.getName(),
+                        parallel ? ", parallel" : "");
+        }
+
+        ConversionEvents.Resize event = new ConversionEvents.Resize();
+        event.begin();
+        long startNanos = System.nanoTime();
+        BufferedImage resized = resize(original, newWidth, newHeight, parallel);
+        ConversionMetrics current = metrics;
+        if (current != null) {
+            current.record(ConversionMetrics.Stage.RESIZE, startNanos);
+            if (parallel) {
+                current.addParallelResize();
+            }
+        }
+        if (event.shouldCommit()) {
+            event.path = source != null ? source.getPath() : null;
+            event.mode = resizeMode.getName();
+            event.sourceWidth = originalWidth;
+            event.sourceHeight = originalHeight;
+            event.width = newWidth;
+            event.height = newHeight;
+            event.commit();
+        }
+        return resized;
+    }
+
+    private BufferedImage resize(BufferedImage original, int newWidth, int newHeight, boolean parallel) {
+        if (resizeMode.getFilter() != null) {
+            return new Resampler(resizeMode.getFilter()).resize(original, newWidth, newHeight, parallel);
+        }
+
+        BufferedImage source = original;
+        if (resizeMode == ResizeMode.PROGRESSIVE) {
+            // Halve with a cheap 2x2 box filter until within 2x of the target
+            while (source.getWidth() >= newWidth * 2 && source.getHeight() >= newHeight * 2) {
+                source = halve(source, parallel);
+            }
+        }
+
+        // Final high quality pass
+        return drawScaled(source, newWidth, newHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    /**
+     * Compute the size of an image after resizing by its shorter edge.
+     *
+     * @param width source width
+     * @param height source height
+     * @param shortEdgeSize desired size of the shorter edge (0 or negative for no resize)
+     * @return target dimensions
+     */
+    public static Dimension computeTargetSize(int width, int height, int shortEdgeSize) {
+        if (shortEdgeSize <= 0) {
+            return new Dimension(width, height);
+        }
+
         // Determine which edge is shorter and calculate new dimensions
-        if (originalWidth < originalHeight) {
+        if (width < height) {
             // Width is shorter
-            newWidth = shortEdgeSize;
-            newHeight = (int) Math.round((double) originalHeight * shortEdgeSize / originalWidth);
+            return new Dimension(shortEdgeSize, (int) Math.round((double) height * shortEdgeSize / width));
         } else {
             // Height is shorter (or equal)
-            newHeight = shortEdgeSize;
-            newWidth = (int) Math.round((double) originalWidth * shortEdgeSize / originalHeight);
+            return new Dimension((int) Math.round((double) width * shortEdgeSize / height), shortEdgeSize);
+        }
+    }
+
+    /**
+     * Halve an image in both dimensions by averaging 2x2 pixel blocks.
+     * Opaque images are read directly from their rasters; other images fall back to
+     * Java2D bilinear scaling, which averages the same blocks at an exact 2x reduction.
+     */
+    private static BufferedImage halve(BufferedImage source, boolean parallel) {
+        int width = source.getWidth() / 2;
+        int height = source.getHeight() / 2;
+        if (!RasterAccess.isSupported(source)) {
+            return drawScaled(source, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         }
 
-        logger.info("Resizing image from {}x{} to {}x{}", 
-                   originalWidth, originalHeight, newWidth, newHeight);
+        BufferedImage halved = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] out = RasterAccess.pixels(halved);
+        ParallelRows.forEach(0, height, parallel, (from, to) -> halveRows(source, out, width, from, to));
+        return halved;
+    }
+
+    /**
+     * Halve destination rows [fromRow, toRow) of {@link #halve}.
+     */
+    private static void halveRows(BufferedImage source, int[] out, int width, int fromRow, int toRow) {
+        int[] row0 = new int[source.getWidth()];
+        int[] row1 = new int[source.getWidth()];
+        for (int y = fromRow; y < toRow; y++) {
+            RasterAccess.readRow(source, 2 * y, row0);
+            RasterAccess.readRow(source, 2 * y + 1, row1);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int a = row0[2 * x];
+                int b = row0[2 * x + 1];
+                int c = row1[2 * x];
+                int d = row1[2 * x + 1];
+                int r = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF) + ((d >> 16) & 0xFF) + 2) >> 2;
+                int g = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF) + ((d >> 8) & 0xFF) + 2) >> 2;
+                int bl = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+                out[offset + x] = (r << 16) | (g << 8) | bl;
+            }
+        }
+    }
 
-        // Create resized image with high quality
-        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+    /**
+     * Draw an image scaled to the given size with Java2D.
+     * Always single-threaded: Java2D computes source coordinates in floating point relative
+     * to the drawn region, so drawing row bands separately does not give bit-identical output.
+     */
+    private static BufferedImage drawScaled(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g2d = resized.createGraphics();
         
         // High quality rendering hints
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
-        g2d.drawImage(original, 0, 0, newWidth, newHeight, null);
+        g2d.drawImage(source, 0, 0, width, height, null);
         g2d.dispose();
 
         return resized;
@@ -97,55 +591,231 @@ public class ImageConverter {
 
     /**
      * Save image as WebP format with specified quality.
+     * The image is encoded into this thread's reusable in-memory buffer and written with a
+     * single channel write to a temporary file that replaces the output file once complete,
+     * so the output is never left truncated.
      *
      * @param image the image to save
      * @param outputFile the output file
      * @return true if successful, false otherwise
      */
     public boolean saveAsWebP(BufferedImage image, File outputFile) {
+        return saveAsWebP(image, outputFile, null);
+    }
+
+    /**
+     * Save image as WebP format with specified quality.
+     *
+     * @param image the image to save
+     * @param outputFile the output file
+     * @param source file the image was loaded from, reported in Flight Recorder events; may be null
+     * @return true if successful, false otherwise
+     */
+    public boolean saveAsWebP(BufferedImage image, File outputFile, File source) {
+        return save(image, outputFile, source) >= 0;
+    }
+
+    /**
+     * Save image as WebP format with specified quality.
+     *
+     * @return size of the written file in bytes, or -1 if saving failed
+     */
+    private long save(BufferedImage image, File outputFile, File source) {
+        EncodeBuffer buffer = ENCODE_BUFFERS.get();
         try {
-            logger.info("Saving image as WebP: {}", outputFile.getAbsolutePath());
+            logger.debug("Saving image as WebP: {}", outputFile);
 
-            // Get WebP writer
-            Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType("image/webp");
-            if (!writers.hasNext()) {
-                logger.error("No WebP writer found. Make sure webp-imageio is in the classpath.");
-                return false;
+            if (!encodeInto(image, buffer, source)) {
+                return -1;
             }
+            long size = write(outputFile, buffer.contents(), source);
 
-            ImageWriter writer = writers.next();
-            ImageWriteParam writeParam = writer.getDefaultWriteParam();
-            
-            // Set compression mode and type for WebP
-            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            String[] compressionTypes = writeParam.getCompressionTypes();
-            if (compressionTypes != null && compressionTypes.length > 0) {
-                writeParam.setCompressionType(compressionTypes[0]);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Successfully saved WebP image: {} (size: {} bytes)",
+                            outputFile.getName(), size);
             }
-            writeParam.setCompressionQuality(WEBP_QUALITY);
+            return size;
 
-            // Ensure parent directory exists
-            File parentDir = outputFile.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
-            }
+        } catch (IOException e) {
+            logger.error("Error saving WebP image: {}", outputFile.getName(), e);
+            return -1;
+        } finally {
+            buffer.release();
+        }
+    }
 
-            // Write the image
-            try (ImageOutputStream ios = ImageIO.createImageOutputStream(outputFile)) {
-                writer.setOutput(ios);
-                writer.write(null, new IIOImage(image, null, null), writeParam);
-            } finally {
-                writer.dispose();
+    /**
+     * Encode image as WebP into memory, without touching the file system.
+     *
+     * @param image the image to encode
+     * @return encoded WebP bytes, or null if encoding fails
+     */
+    public byte[] encodeWebP(BufferedImage image) {
+        return encodeWebP(image, null);
+    }
+
+    /**
+     * Encode image as WebP into memory, without touching the file system.
+     *
+     * @param image the image to encode
+     * @param source file the image was loaded from, reported in Flight Recorder events; may be null
+     * @return encoded WebP bytes, or null if encoding fails
+     */
+    public byte[] encodeWebP(BufferedImage image, File source) {
+        EncodeBuffer buffer = ENCODE_BUFFERS.get();
+        try {
+            if (!encodeInto(image, buffer, source)) {
+                return null;
             }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Encoded WebP image ({}x{}, {} bytes)",
+                            image.getWidth(), image.getHeight(), buffer.size());
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            logger.error("Error encoding WebP image", e);
+            return null;
+        } finally {
+            buffer.release();
+        }
+    }
 
-            logger.info("Successfully saved WebP image: {} (size: {} bytes)", 
-                       outputFile.getName(), outputFile.length());
-            return true;
+    /**
+     * Encode image as WebP into a memory stream. The in-memory image stream keeps ImageIO
+     * from creating a disk cache file.
+     *
+     * @return false if no WebP writer is available
+     */
+    private boolean encodeInto(BufferedImage image, EncodeBuffer buffer, File source) throws IOException {
+        ConversionEvents.Encode event = new ConversionEvents.Encode();
+        event.begin();
+        long startNanos = System.nanoTime();
+        boolean encoded;
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(buffer)) {
+            encoded = writeWebP(image, ios);
+        }
+        if (!encoded) {
+            return false;
+        }
+        ConversionMetrics current = metrics;
+        if (current != null) {
+            current.record(ConversionMetrics.Stage.ENCODE, startNanos);
+            current.addOutputPixels((long) image.getWidth() * image.getHeight());
+        }
+        if (event.shouldCommit()) {
+            event.path = source != null ? source.getPath() : null;
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.bytes = buffer.size();
+            event.commit();
+        }
+        return true;
+    }
 
+    /**
+     * Write previously encoded WebP bytes to the output file.
+     *
+     * @param data encoded WebP bytes
+     * @param outputFile the output file
+     * @return true if successful, false otherwise
+     */
+    public boolean writeWebP(byte[] data, File outputFile) {
+        return writeWebP(data, outputFile, null);
+    }
+
+    /**
+     * Write previously encoded WebP bytes to the output file.
+     *
+     * @param data encoded WebP bytes
+     * @param outputFile the output file
+     * @param source file the image was loaded from, reported in Flight Recorder events; may be null
+     * @return true if successful, false otherwise
+     */
+    public boolean writeWebP(byte[] data, File outputFile, File source) {
+        try {
+            logger.debug("Writing WebP image: {}", outputFile);
+
+            write(outputFile, ByteBuffer.wrap(data), source);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Successfully saved WebP image: {} (size: {} bytes)",
+                            outputFile.getName(), data.length);
+            }
+            return true;
         } catch (IOException e) {
-            logger.error("Error saving WebP image: {}", outputFile.getName(), e);
+            logger.error("Error writing WebP image: {}", outputFile.getName(), e);
+            return false;
+        }
+    }
+
+    private void recordDecode(long startNanos, long pixels, File file, long fileSize) {
+        ConversionMetrics current = metrics;
+        if (current != null) {
+            current.record(ConversionMetrics.Stage.DECODE, startNanos);
+            current.addInput(pixels, sizeOf(file, fileSize));
+        }
+    }
+
+    /**
+     * @return the known size of a file, or its size on disk if unknown
+     */
+    private static long sizeOf(File file, long fileSize) {
+        return fileSize >= 0 ? fileSize : file.length();
+    }
+
+    /**
+     * Write an output file through {@link AtomicFiles}, so it is never left truncated,
+     * and record the write.
+     *
+     * @return bytes written
+     */
+    private long write(File outputFile, ByteBuffer data, File source) throws IOException {
+        ConversionEvents.Write event = new ConversionEvents.Write();
+        event.begin();
+        long startNanos = System.nanoTime();
+        long bytes = data.remaining();
+        AtomicFiles.write(outputFile, data);
+        ConversionMetrics current = metrics;
+        if (current != null) {
+            current.record(ConversionMetrics.Stage.WRITE, startNanos);
+            current.addBytesWritten(bytes);
+        }
+        if (event.shouldCommit()) {
+            event.path = source != null ? source.getPath() : null;
+            event.output = outputFile.getPath();
+            event.bytes = bytes;
+            event.commit();
+        }
+        return bytes;
+    }
+
+    /**
+     * Encode image with a pooled WebP writer into the given stream.
+     *
+     * @return false if no WebP writer is available
+     */
+    private boolean writeWebP(BufferedImage image, ImageOutputStream ios) throws IOException {
+        WebPWriterPool.PooledWriter pooled = WRITER_POOL.borrow();
+        if (pooled == null) {
+            logger.error("No WebP writer found. Make sure webp-imageio is in the classpath.");
             return false;
         }
+
+        boolean reusable = false;
+        try {
+            ImageWriter writer = pooled.getWriter();
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), pooled.getWriteParam());
+            reusable = true;
+        } finally {
+            // A writer that failed mid-write may be in an undefined state, do not reuse it
+            if (reusable) {
+                WRITER_POOL.release(pooled);
+            } else {
+                WRITER_POOL.discard(pooled);
+            }
+        }
+        return true;
     }
 
     /**
@@ -156,35 +826,70 @@ public class ImageConverter {
      * @return true if conversion was successful
      */
     public boolean convertImage(File inputFile, int shortEdgeSize) {
-        logger.info("Starting conversion: {}", inputFile.getName());
+        return convert(inputFile, shortEdgeSize) >= 0;
+    }
+
+    /**
+     * Convert a single image file to WebP format with optional resizing.
+     *
+     * @param inputFile the input image file
+     * @param shortEdgeSize the desired size of the shorter edge (0 or negative for no resize)
+     * @return size of the written WebP file in bytes, or -1 if the conversion failed
+     */
+    public long convert(File inputFile, int shortEdgeSize) {
+        return convert(inputFile, shortEdgeSize, UNKNOWN_SIZE);
+    }
+
+    /**
+     * Convert a single image file to WebP format with optional resizing.
+     *
+     * @param inputFile the input image file
+     * @param shortEdgeSize the desired size of the shorter edge (0 or negative for no resize)
+     * @param inputSize size of the input file if the caller already has it, saving another stat; -1 if unknown
+     * @return size of the written WebP file in bytes, or -1 if the conversion failed
+     */
+    public long convert(File inputFile, int shortEdgeSize, long inputSize) {
+        logger.debug("Starting conversion: {}", inputFile);
 
-        // Load image
-        BufferedImage image = loadImage(inputFile);
+        // Load image (subsampled if it will be downscaled a lot)
+        BufferedImage image = loadImage(inputFile, shortEdgeSize, inputSize);
         if (image == null) {
-            return false;
+            return -1;
         }
 
         // Resize if needed
         if (shortEdgeSize > 0) {
-            image = resizeByShortEdge(image, shortEdgeSize);
+            image = resizeByShortEdge(image, shortEdgeSize, inputFile);
         }
 
         // Create output file path (same directory, same name, .webp extension)
-        String inputPath = inputFile.getAbsolutePath();
-        String outputPath = inputPath.substring(0, inputPath.lastIndexOf('.')) + ".webp";
-        File outputFile = new File(outputPath);
+        File outputFile = getOutputFile(inputFile);
 
         // Save as WebP
-        boolean success = saveAsWebP(image, outputFile);
+        long size = save(image, outputFile, inputFile);
         
-        if (success) {
-            logger.info("Conversion completed successfully: {} -> {}", 
-                       inputFile.getName(), outputFile.getName());
+        if (size >= 0) {
+            recordOutputSize(inputFile, shortEdgeSize, (long) image.getWidth() * image.getHeight(), size);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Conversion completed successfully: {} -> {}",
+                            inputFile.getName(), outputFile.getName());
+            }
         } else {
             logger.error("Conversion failed: {}", inputFile.getName());
         }
 
-        return success;
+        return size;
+    }
+
+    /**
+     * Get the WebP output file for an input image (same directory, same name, .webp extension).
+     *
+     * @param inputFile the input image file
+     * @return the corresponding WebP file
+     */
+    public static File getOutputFile(File inputFile) {
+        String inputPath = inputFile.getAbsolutePath();
+        return new File(inputPath.substring(0, inputPath.lastIndexOf('.')) + ".webp");
     }
 
     /**
@@ -204,8 +909,9 @@ public class ImageConverter {
     }
 
     /**
-     * Estimate the output file size (rough approximation).
-     * WebP typically achieves 70-80% compression compared to original.
+     * Estimate the output file size from the input size alone (rough approximation).
+     * WebP typically achieves 70-80% compression compared to original. Only used when the
+     * image header cannot be read; see {@link #estimateOutputSize(File, ImageInfo, int)}.
      *
      * @param inputFile the input file
      * @return estimated output size in bytes
@@ -214,4 +920,32 @@ public class ImageConverter {
         // WebP is typically 70% of original size (conservative estimate)
         return (long) (inputFile.length() * 0.7);
     }
+
+    /**
+     * Growable byte buffer reused by the encodes of one thread, so encoding does not regrow
+     * and copy a fresh buffer per image. The contents are handed to the writer without copying.
+     * A buffer grown by an unusually large image is dropped after use.
+     */
+    private static final class EncodeBuffer extends ByteArrayOutputStream {
+        private static final int INITIAL_SIZE = 1024 * 1024;
+        private static final int MAX_RETAINED_SIZE = 16 * 1024 * 1024;
+
+        EncodeBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        /**
+         * @return view of the bytes written since the last release
+         */
+        synchronized ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        synchronized void release() {
+            reset();
+            if (buf.length > MAX_RETAINED_SIZE) {
+                buf = new byte[INITIAL_SIZE];
+            }
+        }
+    }
 }
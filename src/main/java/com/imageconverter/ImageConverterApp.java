@@ -1,7 +1,11 @@
 package com.imageconverter;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -9,14 +13,15 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Main JavaFX application for Image to WebP Converter.
@@ -28,9 +33,15 @@ public class ImageConverterApp extends Application {
     // UI Components
     private TextField directoryField;
     private TextField sizeField;
-    private ListView<String> fileListView;
+    private Spinner<Integer> threadSpinner;
+    private CheckBox pipelineCheckBox;
+    private CheckBox incrementalCheckBox;
+    private CheckBox forceRebuildCheckBox;
+    private CheckBox recursiveCheckBox;
+    private ListView<Integer> fileListView;
     private Button chooseButton;
     private Button convertButton;
+    private ToggleButton watchButton;
     private ProgressBar progressBar;
     private Label statusLabel;
     
@@ -38,6 +49,18 @@ public class ImageConverterApp extends Application {
     private File selectedDirectory;
     private List<File> imageFiles;
     private DiskSpaceValidator validator;
+    private boolean converting;
+    
+    // Scan state, shared with the scanner threads and guarded by scanLock
+    private final Object scanLock = new Object();
+    private DirectoryScanner activeScanner;
+    private boolean scanComplete;
+    private FileFeed conversionFeed;
+    private FileListModel fileListModel;
+    
+    // Hot folder mode
+    private HotFolderWatcher watcher;
+    private FileFeed watchFeed;
 
     @Override
     public void start(Stage primaryStage) {
@@ -83,6 +106,9 @@ public class ImageConverterApp extends Application {
         // Resize options section
         VBox resizeSection = createResizeSection();
         
+        // Performance options section
+        VBox performanceSection = createPerformanceSection();
+        
         // File list section
         VBox fileListSection = createFileListSection();
         VBox.setVgrow(fileListSection, Priority.ALWAYS);
@@ -95,15 +121,25 @@ public class ImageConverterApp extends Application {
         convertButton.setMaxWidth(Double.MAX_VALUE);
         convertButton.setDisable(true);
         convertButton.setOnAction(e -> startConversion());
+        HBox.setHgrow(convertButton, Priority.ALWAYS);
+        
+        // Hot folder toggle
+        watchButton = new ToggleButton("Watch Folder");
+        watchButton.getStyleClass().add("secondary-button");
+        watchButton.setDisable(true);
+        watchButton.setOnAction(e -> toggleWatch());
+        
+        HBox buttonBox = new HBox(10, convertButton, watchButton);
         
         layout.getChildren().addAll(
             titleLabel,
             new Separator(),
             directorySection,
             resizeSection,
+            performanceSection,
             fileListSection,
             progressSection,
-            convertButton
+            buttonBox
         );
         
         return layout;
@@ -129,8 +165,11 @@ public class ImageConverterApp extends Application {
         chooseButton.getStyleClass().add("secondary-button");
         chooseButton.setOnAction(e -> chooseDirectory());
         
+        recursiveCheckBox = new CheckBox("Include subdirectories");
+        recursiveCheckBox.setOnAction(e -> loadImageFiles());
+        
         selectionBox.getChildren().addAll(directoryField, chooseButton);
-        section.getChildren().addAll(label, selectionBox);
+        section.getChildren().addAll(label, selectionBox, recursiveCheckBox);
         
         return section;
     }
@@ -161,6 +200,40 @@ public class ImageConverterApp extends Application {
         return section;
     }
 
+    /**
+     * Create performance options section.
+     */
+    private VBox createPerformanceSection() {
+        VBox section = new VBox(8);
+        
+        HBox threadBox = new HBox(10);
+        threadBox.setAlignment(Pos.CENTER_LEFT);
+        
+        Label threadLabel = new Label("Worker threads:");
+        
+        int cores = BatchConverter.defaultThreadCount();
+        threadSpinner = new Spinner<>(1, Math.max(64, cores * 2), cores);
+        threadSpinner.setEditable(true);
+        threadSpinner.setPrefWidth(90);
+        
+        Label infoLabel = new Label(String.format("(%d processor(s) available)", cores));
+        infoLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #888888;");
+        
+        pipelineCheckBox = new CheckBox("Pipelined (overlap disk I/O with encoding)");
+        incrementalCheckBox = new CheckBox("Skip files whose WebP is up to date");
+
+        // Converts everything once and rebuilds the manifests, like --force
+        forceRebuildCheckBox = new CheckBox("Rebuild: convert up-to-date files too");
+        forceRebuildCheckBox.setPadding(new Insets(0, 0, 0, 20));
+        forceRebuildCheckBox.disableProperty().bind(incrementalCheckBox.selectedProperty().not()
+                                                    .or(incrementalCheckBox.disabledProperty()));
+        
+        threadBox.getChildren().addAll(threadLabel, threadSpinner, infoLabel);
+        section.getChildren().addAll(threadBox, pipelineCheckBox, incrementalCheckBox, forceRebuildCheckBox);
+        
+        return section;
+    }
+
     /**
      * Create file list section.
      */
@@ -170,6 +243,7 @@ public class ImageConverterApp extends Application {
         Label label = new Label("Found Images:");
         
         fileListView = new ListView<>();
+        fileListView.setCellFactory(view -> new FileListCell());
         fileListView.setPlaceholder(new Label("No images found. Select a directory."));
         VBox.setVgrow(fileListView, Priority.ALWAYS);
         
@@ -218,76 +292,186 @@ public class ImageConverterApp extends Application {
     }
 
     /**
-     * Load image files from the selected directory.
+     * Scan the selected directory in the background.
+     * Found images are appended to the list as each directory is listed,
+     * and a conversion started before the scan ends keeps receiving them.
      */
     private void loadImageFiles() {
-        imageFiles.clear();
-        fileListView.getItems().clear();
+        DirectoryScanner scanner = null;
+        FileListModel model = null;
+        if (selectedDirectory != null && selectedDirectory.exists()) {
+            scanner = new DirectoryScanner(selectedDirectory, recursiveCheckBox.isSelected(),
+                                           Collections.emptyList(), Collections.emptyList());
+            model = new FileListModel(selectedDirectory);
+            model.addListener((ListChangeListener<Integer>) change -> {
+                // Status updates of rows don't change the count
+                while (change.next()) {
+                    if (change.wasAdded()) {
+                        updateScanStatus();
+                        return;
+                    }
+                }
+            });
+        }
         
-        if (selectedDirectory == null || !selectedDirectory.exists()) {
-            return;
+        synchronized (scanLock) {
+            if (activeScanner != null) {
+                activeScanner.cancel();
+            }
+            if (conversionFeed != null) {
+                conversionFeed.close();
+                conversionFeed = null;
+            }
+            activeScanner = scanner;
+            scanComplete = scanner == null;
+            imageFiles = new ArrayList<>();
+            fileListModel = model;
+        }
+        if (model != null) {
+            fileListView.setItems(model);
+        } else {
+            fileListView.getItems().clear();
+        }
+        if (!converting) {
+            convertButton.setDisable(true);
+            watchButton.setDisable(scanner == null);
         }
         
-        File[] files = selectedDirectory.listFiles();
-        if (files == null) {
+        if (scanner == null) {
             return;
         }
+        statusLabel.setText("Scanning...");
         
-        imageFiles = Arrays.stream(files)
-            .filter(File::isFile)
-            .filter(ImageConverter::isSupportedFormat)
-            .collect(Collectors.toList());
-        
-        List<String> fileNames = imageFiles.stream()
-            .map(File::getName)
-            .collect(Collectors.toList());
-        
-        fileListView.getItems().addAll(fileNames);
-        
-        // Enable convert button if files found
-        convertButton.setDisable(imageFiles.isEmpty());
-        
-        statusLabel.setText(String.format("Found %d image(s)", imageFiles.size()));
-        logger.info("Loaded {} image files", imageFiles.size());
+        DirectoryScanner current = scanner;
+        Thread thread = new Thread(() -> {
+            current.scan(files -> publishScannedFiles(current, files));
+            finishScan(current);
+        }, "directory-scanner");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
-     * Start the conversion process.
+     * Record images found by a scanner thread and schedule a list update.
      */
-    private void startConversion() {
-        // Parse resize dimension
-        int shortEdgeSize = 0;
-        String sizeText = sizeField.getText().trim();
-        if (!sizeText.isEmpty()) {
-            try {
-                shortEdgeSize = Integer.parseInt(sizeText);
-                if (shortEdgeSize <= 0) {
-                    showError("Invalid Size", "Please enter a positive number for the image size.");
-                    return;
-                }
-            } catch (NumberFormatException e) {
-                showError("Invalid Size", "Please enter a valid number for the image size.");
+    private void publishScannedFiles(DirectoryScanner scanner, List<File> files) {
+        synchronized (scanLock) {
+            if (scanner != activeScanner) {
                 return;
             }
+            imageFiles.addAll(files);
+            // The row must exist before a worker can report on the file
+            fileListModel.postFiles(files);
+            if (conversionFeed != null) {
+                conversionFeed.addAll(files);
+            }
         }
-        
-        // Validate disk space
-        DiskSpaceValidator.ValidationResult validation = 
-            validator.validateDiskSpace(imageFiles, selectedDirectory);
-        
-        if (!validation.isValid()) {
-            showError("Insufficient Disk Space", validation.getMessage());
-            logger.warn("Conversion aborted due to insufficient disk space");
+    }
+
+    /**
+     * Mark a scan as finished and end the feed of a conversion waiting for more files.
+     */
+    private void finishScan(DirectoryScanner scanner) {
+        synchronized (scanLock) {
+            if (scanner != activeScanner) {
+                return;
+            }
+            scanComplete = true;
+            if (conversionFeed != null) {
+                conversionFeed.close();
+                conversionFeed = null;
+            }
+        }
+        Platform.runLater(this::updateScanStatus);
+        logger.info("Loaded {} image files", scanner.getFileCount());
+    }
+
+    /**
+     * Update the status line and convert button while the list grows.
+     */
+    private void updateScanStatus() {
+        if (converting) {
+            return;
+        }
+        int count;
+        boolean complete;
+        synchronized (scanLock) {
+            count = imageFiles.size();
+            complete = scanComplete;
+        }
+        // Conversion may start as soon as the first images are found
+        convertButton.setDisable(count == 0);
+        watchButton.setDisable(selectedDirectory == null);
+        statusLabel.setText(complete
+            ? String.format("Found %d image(s)", count)
+            : String.format("Scanning... found %d image(s)", count));
+    }
+
+    /**
+     * Start the conversion process.
+     */
+    private void startConversion() {
+        int shortEdgeSize = readShortEdgeSize();
+        if (shortEdgeSize < 0) {
             return;
         }
         
-        // Disable UI during conversion
+        // Validate disk space for the images found so far. Reading the headers and
+        // trial-encoding a few images takes a moment, so do it off the FX thread.
+        List<File> snapshot;
+        synchronized (scanLock) {
+            snapshot = new ArrayList<>(imageFiles);
+        }
+        converting = true;
         setUIEnabled(false);
+        statusLabel.setText("Checking disk space...");
+        ImageConverter converter = createConverter();
+        Thread thread = new Thread(() -> {
+            DiskSpaceValidator.ValidationResult validation =
+                validator.validateDiskSpace(snapshot, selectedDirectory, converter, shortEdgeSize);
+            Platform.runLater(() -> {
+                if (validation.isValid()) {
+                    runConversion(shortEdgeSize);
+                    return;
+                }
+                showError("Insufficient Disk Space", validation.getMessage());
+                logger.warn("Conversion aborted due to insufficient disk space");
+                converting = false;
+                setUIEnabled(true);
+                updateScanStatus();
+            });
+        }, "disk-space-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Convert the images found so far, and those a running scan still finds.
+     */
+    private void runConversion(int shortEdgeSize) {
+        // Hand the images over to the engine; a running scan keeps adding to the feed
+        FileFeed feed = new FileFeed();
+        FileListModel model;
+        synchronized (scanLock) {
+            model = fileListModel;
+            feed.addAll(imageFiles);
+            if (scanComplete) {
+                feed.close();
+            } else {
+                conversionFeed = feed;
+            }
+        }
+        
+        // The UI stays disabled during conversion
         progressBar.setVisible(true);
         progressBar.setProgress(0);
         
         // Create and start conversion task
-        ConversionTask task = new ConversionTask(imageFiles, shortEdgeSize);
+        ConversionEngine engine = createEngine();
+        sweepStaleTempFiles();
+        model.resetStatuses(FileStatus.QUEUED);
+        fileListView.refresh();
+        ConversionTask task = new ConversionTask(feed, shortEdgeSize, engine, statusUpdater(model));
         
         // Bind progress
         progressBar.progressProperty().bind(task.progressProperty());
@@ -304,13 +488,13 @@ public class ImageConverterApp extends Application {
                 ErrorSummaryDialog dialog = new ErrorSummaryDialog(result);
                 dialog.showAndWait();
                 
-                // Re-enable UI
+                // Re-enable UI, the list keeps showing the status of each file
+                converting = false;
+                model.setDefaultStatus(FileStatus.NONE);
                 setUIEnabled(true);
                 progressBar.setVisible(false);
+                statusLabel.textProperty().unbind();
                 statusLabel.setText("Conversion complete");
-                
-                // Refresh file list
-                loadImageFiles();
             });
         });
         
@@ -319,8 +503,11 @@ public class ImageConverterApp extends Application {
             Platform.runLater(() -> {
                 showError("Conversion Failed", 
                          "An error occurred during conversion: " + task.getException().getMessage());
+                converting = false;
+                model.setDefaultStatus(FileStatus.NONE);
                 setUIEnabled(true);
                 progressBar.setVisible(false);
+                statusLabel.textProperty().unbind();
                 statusLabel.setText("Conversion failed");
             });
         });
@@ -330,7 +517,197 @@ public class ImageConverterApp extends Application {
         thread.setDaemon(true);
         thread.start();
         
-        logger.info("Conversion task started for {} files", imageFiles.size());
+        logger.info("Conversion task started for {} files{}", feed.getPublishedCount(),
+                   feed.isClosed() ? "" : " (scan still running)");
+    }
+
+    /**
+     * Start or stop watching the selected directory.
+     */
+    private void toggleWatch() {
+        if (watchButton.isSelected()) {
+            startWatching();
+        } else {
+            stopWatching();
+        }
+    }
+
+    /**
+     * Convert images as they are added to or changed in the selected directory,
+     * until watching is stopped.
+     */
+    private void startWatching() {
+        int shortEdgeSize = readShortEdgeSize();
+        FileListModel model;
+        synchronized (scanLock) {
+            model = fileListModel;
+        }
+        if (shortEdgeSize < 0 || model == null) {
+            watchButton.setSelected(false);
+            return;
+        }
+        
+        sweepStaleTempFiles();
+        FileFeed feed = new FileFeed();
+        HotFolderWatcher folderWatcher = new HotFolderWatcher(selectedDirectory, recursiveCheckBox.isSelected(),
+                                                              HotFolderWatcher.DEFAULT_SETTLE_MILLIS);
+        try {
+            folderWatcher.start(files -> {
+                model.postFiles(files);
+                feed.addAll(files);
+            });
+        } catch (IOException e) {
+            logger.error("Could not watch {}", selectedDirectory, e);
+            showError("Watch Failed", "Cannot watch the directory: " + e.getMessage());
+            watchButton.setSelected(false);
+            return;
+        }
+        watcher = folderWatcher;
+        watchFeed = feed;
+        
+        converting = true;
+        setUIEnabled(false);
+        watchButton.setDisable(false);
+        watchButton.setText("Stop Watching");
+        model.setDefaultStatus(FileStatus.QUEUED);
+        
+        ThroughputCounter counter = new ThroughputCounter(statusUpdater(model));
+        ConversionTask task = new ConversionTask(feed, shortEdgeSize, createEngine(), counter);
+        
+        // Queue depth and throughput, refreshed once per second
+        Timeline statusTimeline = new Timeline(new KeyFrame(Duration.seconds(1), event ->
+            statusLabel.setText(String.format(
+                "Watching: %d settling, %d queued, %d converting | %d converted, %d failed | %.1f images/s",
+                folderWatcher.getSettlingCount(), feed.getQueuedCount(), counter.getInProgress(),
+                counter.getConverted(), counter.getFailed(), counter.sampleRate()))));
+        statusTimeline.setCycleCount(Animation.INDEFINITE);
+        statusTimeline.play();
+        statusLabel.setText("Watching " + selectedDirectory.getAbsolutePath());
+        
+        task.setOnSucceeded(event -> {
+            ConversionResult result = task.getValue();
+            statusTimeline.stop();
+            finishWatching(model);
+            statusLabel.setText(String.format("Stopped watching: %d converted, %d failed",
+                                              result.getSuccessCount(), result.getFailCount()));
+            if (result.getFailCount() > 0) {
+                new ErrorSummaryDialog(result).showAndWait();
+            }
+        });
+        task.setOnFailed(event -> {
+            logger.error("Watch conversion failed", task.getException());
+            statusTimeline.stop();
+            folderWatcher.stop();
+            feed.close();
+            finishWatching(model);
+            statusLabel.setText("Watching failed");
+            showError("Watching Failed", "An error occurred during conversion: " + task.getException().getMessage());
+        });
+        
+        Thread thread = new Thread(task, "watch-conversion");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for new images", selectedDirectory);
+    }
+
+    /**
+     * Stop the watcher; the engine finishes the files already queued.
+     */
+    private void stopWatching() {
+        if (watcher != null) {
+            watcher.stop();
+            watchFeed.close();
+            watchButton.setDisable(true);
+            statusLabel.setText("Finishing queued files...");
+        }
+    }
+
+    private void finishWatching(FileListModel model) {
+        watcher = null;
+        watchFeed = null;
+        converting = false;
+        model.setDefaultStatus(FileStatus.NONE);
+        setUIEnabled(true);
+        watchButton.setSelected(false);
+        watchButton.setText("Watch Folder");
+    }
+
+    /**
+     * Read the short edge size field, showing an error if it is invalid.
+     *
+     * @return the size, 0 for no resize, or -1 if the input is invalid
+     */
+    private int readShortEdgeSize() {
+        String sizeText = sizeField.getText().trim();
+        if (sizeText.isEmpty()) {
+            return 0;
+        }
+        try {
+            int shortEdgeSize = Integer.parseInt(sizeText);
+            if (shortEdgeSize <= 0) {
+                showError("Invalid Size", "Please enter a positive number for the image size.");
+                return -1;
+            }
+            return shortEdgeSize;
+        } catch (NumberFormatException e) {
+            showError("Invalid Size", "Please enter a valid number for the image size.");
+            return -1;
+        }
+    }
+
+    /**
+     * Remove temporary files of interrupted conversions in the selected directory,
+     * in the background so the conversion is not held up.
+     */
+    private void sweepStaleTempFiles() {
+        File directory = selectedDirectory;
+        boolean recursive = recursiveCheckBox.isSelected();
+        Thread thread = new Thread(() -> AtomicFiles.sweepStale(directory, recursive), "temp-file-sweep");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Create a converter with the incremental options.
+     */
+    private ImageConverter createConverter() {
+        ImageConverter converter = new ImageConverter();
+        converter.setIncremental(incrementalCheckBox.isSelected());
+        converter.setForceRebuild(forceRebuildCheckBox.isSelected());
+        return converter;
+    }
+
+    /**
+     * Create the engine selected by the performance options.
+     */
+    private ConversionEngine createEngine() {
+        int threads = threadSpinner.getValue();
+        ImageConverter converter = createConverter();
+        return pipelineCheckBox.isSelected()
+            ? new PipelineConverter(PipelineConfig.forThreads(threads), converter)
+            : new BatchConverter(threads, converter);
+    }
+
+    /**
+     * Listener showing the progress of each file in the list.
+     */
+    private ConversionListener statusUpdater(FileListModel model) {
+        return new ConversionListener() {
+            @Override
+            public void fileStarted(File file) {
+                model.postStatus(file, FileStatus.CONVERTING);
+            }
+
+            @Override
+            public void fileFinished(File file, boolean success) {
+                model.postStatus(file, success ? FileStatus.DONE : FileStatus.FAILED);
+            }
+
+            @Override
+            public void fileSkipped(File file) {
+                model.postStatus(file, FileStatus.SKIPPED);
+            }
+        };
     }
 
     /**
@@ -340,6 +717,11 @@ public class ImageConverterApp extends Application {
         chooseButton.setDisable(!enabled);
         convertButton.setDisable(!enabled);
         sizeField.setDisable(!enabled);
+        threadSpinner.setDisable(!enabled);
+        pipelineCheckBox.setDisable(!enabled);
+        incrementalCheckBox.setDisable(!enabled);
+        recursiveCheckBox.setDisable(!enabled);
+        watchButton.setDisable(!enabled);
     }
 
     /**
@@ -364,5 +746,13 @@ public class ImageConverterApp extends Application {
     @Override
     public void stop() {
         logger.info("Application closing");
+        if (watcher != null) {
+            watcher.stop();
+        }
+        synchronized (scanLock) {
+            if (activeScanner != null) {
+                activeScanner.cancel();
+            }
+        }
     }
 }
@@ -0,0 +1,105 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Dimensions and pixel size of an image, read from its header without decoding the pixels.
+ */
+public final class ImageInfo {
+    private static final Logger logger = LoggerFactory.getLogger(ImageInfo.class);
+
+    /** Assumed when the reader cannot tell the decoded pixel layout up front. */
+    private static final int DEFAULT_BYTES_PER_PIXEL = 4;
+
+    private final String formatName;
+    private final int width;
+    private final int height;
+    private final int bytesPerPixel;
+
+    public ImageInfo(String formatName, int width, int height, int bytesPerPixel) {
+        this.formatName = formatName;
+        this.width = width;
+        this.height = height;
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    /**
+     * Read the header of an image file.
+     *
+     * @param file the image file
+     * @return the image info, or null if the format is unsupported or the header is unreadable
+     */
+    public static ImageInfo read(File file) {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = iis != null ? ImageIO.getImageReaders(iis) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                return new ImageInfo(reader.getFormatName(), width, height, bytesPerPixel(reader));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not read image header of {}", file.getName(), e);
+            return null;
+        }
+    }
+
+    private static int bytesPerPixel(ImageReader reader) {
+        try {
+            ImageTypeSpecifier type = reader.getRawImageType(0);
+            if (type != null) {
+                return Math.max(1, (type.getColorModel().getPixelSize() + 7) / 8);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall back to the default below
+        }
+        return DEFAULT_BYTES_PER_PIXEL;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return bytes per pixel of the decoded image
+     */
+    public int getBytesPerPixel() {
+        return bytesPerPixel;
+    }
+
+    /**
+     * @return size of the fully decoded image in bytes
+     */
+    public long getDecodedBytes() {
+        return (long) width * height * bytesPerPixel;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %dx%d, %d bytes/pixel", formatName, width, height, bytesPerPixel);
+    }
+}
@@ -3,9 +3,14 @@ package com.imageconverter;
 /**
  * Launcher class for jpackage.
  * This is required because JavaFX Application classes cannot be directly launched by jpackage.
+ * With "--cli" the headless {@link CommandLineRunner} is started instead and JavaFX is never initialized.
  */
 public class Launcher {
     public static void main(String[] args) {
-        ImageConverterApp.main(args);
+        if (CommandLineRunner.isCommandLineMode(args)) {
+            CommandLineRunner.main(args);
+        } else {
+            ImageConverterApp.main(args);
+        }
     }
 }
@@ -0,0 +1,157 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the estimated memory of the images being converted at the same time.
+ * Workers reserve the estimated working set of an image before decoding it and release it
+ * when the pixels are no longer needed. Reservations are admitted in arrival order, so a
+ * large image is not starved by a stream of small ones. An image larger than the whole
+ * budget is admitted once nothing else is in flight, i.e. it runs alone.
+ */
+public class MemoryBudget {
+    private static final Logger logger = LoggerFactory.getLogger(MemoryBudget.class);
+
+    /** System property overriding the shared budget, in megabytes. */
+    public static final String BUDGET_PROPERTY = "imageconverter.memoryBudgetMb";
+
+    /** Share of the maximum heap used by default; the rest covers the JVM, the UI and estimate errors. */
+    private static final double HEAP_FRACTION = 0.6;
+    private static final long WAIT_MILLIS = 100;
+
+    private static MemoryBudget shared;
+
+    private final long capacity;
+    private final Deque<Object> waiters = new ArrayDeque<>();
+    private long inFlight;
+    private int holders;
+    private long peakInFlight;
+    private long waitCount;
+
+    /**
+     * Create a budget.
+     *
+     * @param capacity bytes that may be reserved at the same time
+     */
+    public MemoryBudget(long capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * The budget shared by all engines of the process. Sized from the
+     * {@value #BUDGET_PROPERTY} system property or else from the maximum heap size.
+     *
+     * @return the shared budget
+     */
+    public static synchronized MemoryBudget shared() {
+        if (shared == null) {
+            long capacity = (long) (Runtime.getRuntime().maxMemory() * HEAP_FRACTION);
+            String configured = System.getProperty(BUDGET_PROPERTY);
+            if (configured != null) {
+                try {
+                    capacity = Long.parseLong(configured.trim()) * 1024 * 1024;
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring invalid {}: {}", BUDGET_PROPERTY, configured);
+                }
+            }
+            shared = new MemoryBudget(capacity);
+            logger.info("Image memory budget: {}", Formats.formatBytes(shared.capacity));
+        }
+        return shared;
+    }
+
+    /**
+     * Replace the shared budget, e.g. from a command-line option. Engines pick it up
+     * for their next batch.
+     *
+     * @param capacity bytes that may be reserved at the same time
+     */
+    public static synchronized void configureShared(long capacity) {
+        shared = new MemoryBudget(capacity);
+        logger.info("Image memory budget: {}", Formats.formatBytes(capacity));
+    }
+
+    /**
+     * Reserve memory, waiting until it fits the budget.
+     *
+     * @param bytes estimated bytes needed
+     * @param stop checked while waiting; returning true gives up
+     * @return true if reserved, false if {@code stop} became true first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean acquire(long bytes, BooleanSupplier stop) throws InterruptedException {
+        Object ticket = new Object();
+        waiters.addLast(ticket);
+        try {
+            boolean waited = false;
+            while (waiters.peekFirst() != ticket || (holders > 0 && inFlight + bytes > capacity)) {
+                if (stop.getAsBoolean()) {
+                    return false;
+                }
+                if (!waited) {
+                    waited = true;
+                    waitCount++;
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Waiting for {} of image memory ({} of {} in use)",
+                                    Formats.formatBytes(bytes), Formats.formatBytes(inFlight),
+                                    Formats.formatBytes(capacity));
+                    }
+                }
+                wait(WAIT_MILLIS);
+            }
+        } finally {
+            waiters.remove(ticket);
+            notifyAll();
+        }
+
+        if (bytes > capacity) {
+            logger.info("Image needs {}, more than the {} budget; converting it alone",
+                       Formats.formatBytes(bytes), Formats.formatBytes(capacity));
+        }
+        inFlight += bytes;
+        holders++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+        return true;
+    }
+
+    /**
+     * Return a reservation.
+     *
+     * @param bytes the reserved bytes
+     */
+    public synchronized void release(long bytes) {
+        inFlight -= bytes;
+        holders--;
+        notifyAll();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return bytes currently reserved
+     */
+    public synchronized long getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return highest reservation total seen
+     */
+    public synchronized long getPeakInFlight() {
+        return peakInFlight;
+    }
+
+    /**
+     * @return number of reservations that had to wait
+     */
+    public synchronized long getWaitCount() {
+        return waitCount;
+    }
+}
@@ -0,0 +1,190 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Predicts the size of WebP outputs from compression ratios learned in previous runs.
+ * WebP size scales with the number of output pixels rather than with the source file size,
+ * so the model keeps the bytes per output pixel observed for each source format, separately
+ * for resized and full-size conversions (downscaled images carry more detail per pixel).
+ * Until a class has history, a conservative prior is used; history outweighs it quickly.
+ * The ratios are kept in a small properties file in the user's home directory.
+ */
+public class OutputSizeModel {
+    private static final Logger logger = LoggerFactory.getLogger(OutputSizeModel.class);
+
+    /** System property overriding the location of the model file. */
+    public static final String MODEL_FILE_PROPERTY = "imageconverter.outputSizeModel";
+
+    /** WebP at the configured quality rarely needs more than a byte per pixel for photos. */
+    private static final double PRIOR_BYTES_PER_PIXEL = 1.0;
+    /** Weight of the prior, in observed output pixels. */
+    private static final double PRIOR_PIXELS = 5_000_000;
+    /** Halve the history of a class beyond this many pixels, so recent batches dominate. */
+    private static final double MAX_HISTORY_PIXELS = 2_000_000_000.0;
+
+    private static OutputSizeModel shared;
+
+    private final File file;
+    private final Map<String, double[]> history = new TreeMap<>();
+    private boolean dirty;
+
+    /**
+     * Create a model backed by a file. Call {@link #load()} to read existing history.
+     *
+     * @param file the model file, or null to keep the history in memory only
+     */
+    public OutputSizeModel(File file) {
+        this.file = file;
+    }
+
+    /**
+     * The model shared by all converters of the process, loaded from
+     * {@code ~/.image-converter/output-size-model.properties} or the {@value #MODEL_FILE_PROPERTY} property.
+     *
+     * @return the shared model
+     */
+    public static synchronized OutputSizeModel shared() {
+        if (shared == null) {
+            String configured = System.getProperty(MODEL_FILE_PROPERTY);
+            File file = configured != null
+                ? new File(configured)
+                : new File(new File(System.getProperty("user.home"), ".image-converter"), "output-size-model.properties");
+            shared = new OutputSizeModel(file);
+            shared.load();
+        }
+        return shared;
+    }
+
+    /**
+     * Read the history from the model file. A missing or unreadable file leaves the model empty.
+     */
+    public synchronized void load() {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("Could not read output size model {}", file, e);
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.endsWith(".pixels")) {
+                continue;
+            }
+            String key = name.substring(0, name.length() - ".pixels".length());
+            try {
+                double pixels = Double.parseDouble(properties.getProperty(name));
+                double bytes = Double.parseDouble(properties.getProperty(key + ".bytes", "0"));
+                if (pixels > 0 && bytes > 0) {
+                    history.put(key, new double[] {pixels, bytes});
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid entry {} in output size model {}", key, file);
+            }
+        }
+        logger.debug("Loaded output size model with {} classes from {}", history.size(), file);
+    }
+
+    /**
+     * Write the history to the model file if it changed. The file is replaced atomically.
+     */
+    public void save() {
+        Properties properties = new Properties();
+        synchronized (this) {
+            if (!dirty || file == null) {
+                return;
+            }
+            for (Map.Entry<String, double[]> entry : history.entrySet()) {
+                properties.setProperty(entry.getKey() + ".pixels", String.valueOf((long) entry.getValue()[0]));
+                properties.setProperty(entry.getKey() + ".bytes", String.valueOf((long) entry.getValue()[1]));
+            }
+            dirty = false;
+        }
+
+        // A temporary file of its own, so concurrent runs sharing the model do not clobber each other
+        Path temp = null;
+        try {
+            temp = AtomicFiles.newTempFile(file);
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                properties.store(out, "Image Converter: WebP bytes per output pixel by source format");
+            }
+            AtomicFiles.commit(temp, file);
+        } catch (IOException e) {
+            logger.warn("Could not save output size model {}", file, e);
+            if (temp != null) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * Record the output of a conversion.
+     *
+     * @param source the source image
+     * @param resized true if the image was resized
+     * @param outputPixels pixels of the encoded image
+     * @param outputBytes size of the encoded WebP data
+     */
+    public synchronized void record(File source, boolean resized, long outputPixels, long outputBytes) {
+        if (outputPixels <= 0 || outputBytes <= 0) {
+            return;
+        }
+        double[] totals = history.computeIfAbsent(classOf(source, resized), key -> new double[2]);
+        totals[0] += outputPixels;
+        totals[1] += outputBytes;
+        if (totals[0] > MAX_HISTORY_PIXELS) {
+            totals[0] /= 2;
+            totals[1] /= 2;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Predict the size of a WebP output.
+     *
+     * @param source the source image
+     * @param resized true if the image will be resized
+     * @param outputPixels pixels of the image to encode
+     * @return predicted bytes
+     */
+    public long estimate(File source, boolean resized, long outputPixels) {
+        return (long) Math.ceil(outputPixels * getBytesPerPixel(source, resized));
+    }
+
+    /**
+     * @param source a source image of the class
+     * @param resized true for resized conversions
+     * @return predicted WebP bytes per output pixel, from history blended with the prior
+     */
+    public synchronized double getBytesPerPixel(File source, boolean resized) {
+        double[] totals = history.get(classOf(source, resized));
+        double pixels = totals != null ? totals[0] : 0;
+        double bytes = totals != null ? totals[1] : 0;
+        return (bytes + PRIOR_BYTES_PER_PIXEL * PRIOR_PIXELS) / (pixels + PRIOR_PIXELS);
+    }
+
+    private static String classOf(File source, boolean resized) {
+        String name = source.getName();
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if (extension.equals("jpeg")) {
+            extension = "jpg";
+        }
+        return extension + (resized ? ".resized" : ".original");
+    }
+}
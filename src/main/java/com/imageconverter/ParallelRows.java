@@ -0,0 +1,69 @@
+package com.imageconverter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits work on image rows into horizontal bands processed on the common ForkJoinPool.
+ * Each band is processed by exactly one task, so row-independent algorithms produce
+ * the same output as a single-threaded run.
+ */
+final class ParallelRows {
+    /** Bands smaller than this are not split further. */
+    static final int MIN_BAND_ROWS = 64;
+
+    private ParallelRows() {
+    }
+
+    /**
+     * Work on a contiguous range of rows.
+     */
+    @FunctionalInterface
+    interface RowRange {
+        /**
+         * @param fromRow first row (inclusive)
+         * @param toRow last row (exclusive)
+         */
+        void apply(int fromRow, int toRow);
+    }
+
+    /**
+     * Process rows [fromRow, toRow), in parallel bands if requested and worthwhile.
+     *
+     * @param fromRow first row (inclusive)
+     * @param toRow last row (exclusive)
+     * @param parallel true to split the range across the common pool
+     * @param body work for one band
+     */
+    static void forEach(int fromRow, int toRow, boolean parallel, RowRange body) {
+        if (!parallel || toRow - fromRow < 2 * MIN_BAND_ROWS || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            body.apply(fromRow, toRow);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new Band(fromRow, toRow, body));
+    }
+
+    private static final class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromRow;
+        private final int toRow;
+        private final RowRange body;
+
+        Band(int fromRow, int toRow, RowRange body) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow < 2 * MIN_BAND_ROWS) {
+                body.apply(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new Band(fromRow, middle, body), new Band(middle, toRow, body));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.imageconverter;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lets an operator pause an engine between files.
+ * Engines pass the gate before taking the next file from their feed, so pausing stops new
+ * files from starting while the files in flight are completed, and their memory released.
+ */
+public class PauseGate {
+    private static final long WAIT_MILLIS = 100;
+
+    private boolean paused;
+
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Wait while the gate is paused.
+     *
+     * @param stop checked while waiting; returning true gives up
+     * @return true once open, false if {@code stop} became true first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean await(BooleanSupplier stop) throws InterruptedException {
+        while (paused) {
+            if (stop.getAsBoolean()) {
+                return false;
+            }
+            wait(WAIT_MILLIS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package com.imageconverter;
+
+/**
+ * Configuration of the staged conversion pipeline: thread pool size of each stage
+ * and depth of the bounded queues between stages.
+ */
+public class PipelineConfig {
+    private static final int DEFAULT_QUEUE_DEPTH = 4;
+
+    private final int queueDepth;
+    private final int decodeThreads;
+    private final int resizeThreads;
+    private final int encodeThreads;
+    private final int writeThreads;
+
+    /**
+     * Create a pipeline configuration. Values below 1 are treated as 1.
+     *
+     * @param queueDepth capacity of each hand-off queue between stages
+     * @param decodeThreads threads reading and decoding source files
+     * @param resizeThreads threads resizing decoded images
+     * @param encodeThreads threads encoding images to WebP in memory
+     * @param writeThreads threads writing encoded files to disk
+     */
+    public PipelineConfig(int queueDepth, int decodeThreads, int resizeThreads,
+                          int encodeThreads, int writeThreads) {
+        this.queueDepth = Math.max(1, queueDepth);
+        this.decodeThreads = Math.max(1, decodeThreads);
+        this.resizeThreads = Math.max(1, resizeThreads);
+        this.encodeThreads = Math.max(1, encodeThreads);
+        this.writeThreads = Math.max(1, writeThreads);
+    }
+
+    /**
+     * Default configuration sized for the available processors.
+     */
+    public static PipelineConfig defaults() {
+        return forThreads(BatchConverter.defaultThreadCount());
+    }
+
+    /**
+     * Split a thread budget across the stages. WebP encoding is the most expensive
+     * stage and gets half of the budget, decode and resize a quarter each.
+     * I/O stages always get at least one thread so reads and writes overlap with CPU work.
+     *
+     * @param threads total number of CPU threads to spend
+     * @return pipeline configuration
+     */
+    public static PipelineConfig forThreads(int threads) {
+        int budget = Math.max(1, threads);
+        return new PipelineConfig(
+            DEFAULT_QUEUE_DEPTH,
+            Math.max(1, budget / 4),
+            Math.max(1, budget / 4),
+            Math.max(1, budget / 2),
+            Math.max(1, budget / 8)
+        );
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getDecodeThreads() {
+        return decodeThreads;
+    }
+
+    public int getResizeThreads() {
+        return resizeThreads;
+    }
+
+    public int getEncodeThreads() {
+        return encodeThreads;
+    }
+
+    public int getWriteThreads() {
+        return writeThreads;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queueDepth=%d, decode=%d, resize=%d, encode=%d, write=%d",
+                             queueDepth, decodeThreads, resizeThreads, encodeThreads, writeThreads);
+    }
+}
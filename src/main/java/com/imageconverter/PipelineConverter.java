@@ -0,0 +1,536 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Staged batch conversion engine.
+ * Splits each conversion into decode, resize, encode and write stages. Every stage has its
+ * own thread pool and hands items to the next stage through a bounded queue, so reading
+ * file N+1 overlaps with encoding file N and slow stages apply back-pressure upstream.
+ */
+public class PipelineConverter implements ConversionEngine {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineConverter.class);
+
+    /** End-of-stream marker passed down the queues. */
+    private static final Item END = new Item(null);
+
+    private final ImageConverter converter;
+    private final PipelineConfig config;
+    private final PauseGate pauseGate = new PauseGate();
+    private volatile boolean cancelled;
+    private volatile List<StageStats> lastStageStats = Collections.emptyList();
+
+    /**
+     * Create a pipeline converter with the default configuration.
+     */
+    public PipelineConverter() {
+        this(PipelineConfig.defaults());
+    }
+
+    /**
+     * Create a pipeline converter.
+     *
+     * @param config stage pool sizes and queue depth
+     */
+    public PipelineConverter(PipelineConfig config) {
+        this(config, new ImageConverter());
+    }
+
+    /**
+     * Create a pipeline converter with a configured converter.
+     *
+     * @param config stage pool sizes and queue depth
+     * @param converter converter shared by all stages
+     */
+    public PipelineConverter(PipelineConfig config, ImageConverter converter) {
+        this.converter = converter;
+        this.config = config;
+    }
+
+    public PipelineConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Statistics of each stage from the most recent batch.
+     *
+     * @return per-stage statistics in pipeline order, empty before the first batch
+     */
+    public List<StageStats> getLastStageStats() {
+        return lastStageStats;
+    }
+
+    @Override
+    public ConversionResult convert(FileFeed feed, int shortEdgeSize, ConversionListener listener) {
+        int knownSize = feed.getKnownSize();
+        if (knownSize < 0) {
+            logger.info("Starting pipelined conversion of a streamed batch ({})", config);
+        } else {
+            logger.info("Starting pipelined conversion of {} files ({})", knownSize, config);
+        }
+
+        DiskSpaceLedger ledger = converter.getDiskSpaceLedger();
+        ConversionMetrics metrics = new ConversionMetrics();
+        converter.setMetrics(metrics);
+        metrics.start();
+        List<Stage> stages = new ArrayList<>();
+        ConversionMonitor monitor = new ConversionMonitor("pipeline", this, pauseGate, feed, metrics, ledger,
+                                                          () -> queueDepths(stages), listener);
+        BatchState batch = new BatchState(monitor, converter.createUpToDateChecker(shortEdgeSize),
+                                          converter.getMemoryBudget());
+        int depth = config.getQueueDepth();
+        BlockingQueue<Item> decodeQueue = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<Item> resizeQueue = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<Item> encodeQueue = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<Item> writeQueue = new ArrayBlockingQueue<>(depth);
+
+        // With fewer files left than cores, per-file parallelism leaves cores idle: split each resize
+        // instead. Decided per file, a streamed feed only learns its size when the scan ends
+        int cores = BatchConverter.defaultThreadCount();
+        converter.setParallelResize(() -> monitor.isRemainingBelow(cores, decodeQueue.size()));
+
+        stages.add(new Stage("decode", config.getDecodeThreads(), decodeQueue, resizeQueue, batch, item -> {
+            // Only the first stage honours cancellation, files already in flight are completed
+            if (cancelled || batch.skipIfUpToDate(item)) {
+                return false;
+            }
+            // Large images wait here until their decoded pixels fit the memory budget
+            long reserved = converter.estimateMemoryBytes(item.file, shortEdgeSize);
+            if (reserved > 0 && !batch.budget.acquire(reserved, () -> cancelled)) {
+                return false;
+            }
+            item.reservedBytes = reserved;
+            batch.listener.fileStarted(item.file);
+            if (batch.upToDate != null) {
+                item.sourceState = batch.upToDate.captureSource(item.file);
+            }
+            // Stat the source once; its size travels on to the decoder and the metrics
+            item.originalSize = item.sourceState != null ? item.sourceState.getSize() : item.file.length();
+            item.image = converter.loadImage(item.file, shortEdgeSize, item.originalSize);
+            return batch.check(item, item.image != null);
+        }));
+        stages.add(new Stage("resize", config.getResizeThreads(), resizeQueue, encodeQueue, batch, item -> {
+            if (shortEdgeSize > 0) {
+                item.image = converter.resizeByShortEdge(item.image, shortEdgeSize, item.file);
+            }
+            return true;
+        }));
+        stages.add(new Stage("encode", config.getEncodeThreads(), encodeQueue, writeQueue, batch, item -> {
+            BufferedImage image = item.image;
+            item.image = null;
+            item.outputPixels = (long) image.getWidth() * image.getHeight();
+            item.data = converter.encodeWebP(image, item.file);
+            batch.releaseMemory(item);
+            return batch.check(item, item.data != null);
+        }));
+        stages.add(new Stage("write", config.getWriteThreads(), writeQueue, null, batch, item -> {
+            // Waiting here while the volume is nearly full fills the queues and stalls the earlier stages
+            File outputFile = ImageConverter.getOutputFile(item.file);
+            if (!ledger.reserve(outputFile, item.data.length, () -> cancelled)) {
+                batch.failed(item, "Cancelled while waiting for disk space: " + item.file.getName());
+                return false;
+            }
+            boolean success = false;
+            try {
+                success = converter.writeWebP(item.data, outputFile, item.file);
+            } finally {
+                ledger.release(outputFile, item.data.length, success ? item.data.length : 0);
+            }
+            if (success) {
+                converter.recordOutputSize(item.file, shortEdgeSize, item.outputPixels, item.data.length);
+                batch.succeeded(item);
+            }
+            return batch.check(item, success);
+        }));
+
+        monitor.start();
+        long startTime = System.nanoTime();
+        for (Stage stage : stages) {
+            stage.start();
+        }
+
+        // Feed the first stage from a separate thread so the caller can be interrupted safely
+        Thread feeder = new Thread(() -> {
+            try {
+                File file;
+                // Paused engines leave the remaining files on the feed
+                while (!cancelled && pauseGate.await(() -> cancelled) && (file = feed.next(() -> cancelled)) != null) {
+                    decodeQueue.put(new Item(file));
+                }
+                decodeQueue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "pipeline-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+
+        try {
+            for (Stage stage : stages) {
+                stage.join();
+            }
+        } catch (InterruptedException e) {
+            logger.info("Pipelined conversion interrupted, cancelling remaining files");
+            cancel();
+            Thread.currentThread().interrupt();
+        }
+
+        long wallNanos = System.nanoTime() - startTime;
+        List<StageStats> stats = new ArrayList<>();
+        for (Stage stage : stages) {
+            stage.stats.wallNanos = wallNanos;
+            stats.add(stage.stats);
+            logger.info("Pipeline stage {}", stage.stats);
+        }
+        lastStageStats = Collections.unmodifiableList(stats);
+
+        if (cancelled) {
+            logger.info("Pipelined conversion was cancelled");
+        }
+        // Files converted before a cancellation are up to date as well
+        if (batch.upToDate != null) {
+            batch.upToDate.save();
+        }
+        metrics.finish();
+        converter.setParallelResize(false);
+        // Learned compression ratios are kept even if the batch was cancelled
+        converter.getOutputSizeModel().save();
+        monitor.stop();
+        logger.info("Pipelined conversion finished: {} successful, {} failed, {} skipped, {} resized in parallel bands",
+                   batch.successCount.get(), batch.failCount.get(), batch.skippedCount.get(),
+                   metrics.getParallelResizes());
+
+        return new ConversionResult(batch.successCount.get(), batch.failCount.get(), batch.skippedCount.get(),
+                                    new ArrayList<>(batch.errors), batch.totalSaved.sum(), metrics);
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void pause() {
+        pauseGate.pause();
+    }
+
+    @Override
+    public void resume() {
+        pauseGate.resume();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return pauseGate.isPaused();
+    }
+
+    @Override
+    public DiskSpaceLedger getDiskSpaceLedger() {
+        return converter.getDiskSpaceLedger();
+    }
+
+    /**
+     * @return items waiting in front of each stage
+     */
+    private static Map<String, Integer> queueDepths(List<Stage> stages) {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (Stage stage : stages) {
+            depths.put(stage.stats.getName(), stage.input.size());
+        }
+        return depths;
+    }
+
+    /**
+     * Work done by a stage on a single item.
+     */
+    @FunctionalInterface
+    private interface StageFunction {
+        /**
+         * @return true to pass the item to the next stage, false to drop it
+         */
+        boolean process(Item item) throws Exception;
+    }
+
+    /**
+     * A file travelling through the pipeline.
+     */
+    private static final class Item {
+        final File file;
+        long originalSize;
+        BufferedImage image;
+        byte[] data;
+        long outputPixels;
+        long reservedBytes;
+        UpToDateChecker.SourceState sourceState;
+
+        Item(File file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Counters shared by all stages of one batch.
+     */
+    private static final class BatchState {
+        final ConversionListener listener;
+        final UpToDateChecker upToDate;
+        final MemoryBudget budget;
+        final AtomicInteger successCount = new AtomicInteger();
+        final AtomicInteger failCount = new AtomicInteger();
+        final AtomicInteger skippedCount = new AtomicInteger();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        final LongAdder totalSaved = new LongAdder();
+
+        BatchState(ConversionListener listener, UpToDateChecker upToDate, MemoryBudget budget) {
+            this.listener = listener;
+            this.upToDate = upToDate;
+            this.budget = budget;
+        }
+
+        /**
+         * Return the item's memory reservation once its pixels are no longer needed.
+         */
+        void releaseMemory(Item item) {
+            if (item.reservedBytes > 0) {
+                budget.release(item.reservedBytes);
+                item.reservedBytes = 0;
+            }
+        }
+
+        /**
+         * Skip the item if its output is already up to date.
+         */
+        boolean skipIfUpToDate(Item item) {
+            if (upToDate == null || !upToDate.shouldSkip(item.file)) {
+                return false;
+            }
+            skippedCount.incrementAndGet();
+            logger.debug("Skipping up-to-date file: {}", item.file);
+            ConversionEvents.skipped(item.file);
+            listener.fileSkipped(item.file);
+            return true;
+        }
+
+        /**
+         * Record a failure if a stage did not produce its output.
+         */
+        boolean check(Item item, boolean ok) {
+            if (!ok) {
+                String errorMsg = "Failed to convert: " + item.file.getName();
+                failed(item, errorMsg);
+                logger.error(errorMsg);
+            }
+            return ok;
+        }
+
+        void succeeded(Item item) {
+            successCount.incrementAndGet();
+            if (upToDate != null) {
+                upToDate.recordConverted(item.file, item.sourceState, item.data.length);
+            }
+            totalSaved.add(item.originalSize - item.data.length);
+            logger.debug("Successfully converted: {}", item.file);
+            listener.fileFinished(item.file, true);
+        }
+
+        void failed(Item item, String errorMsg) {
+            releaseMemory(item);
+            item.image = null;
+            failCount.incrementAndGet();
+            if (upToDate != null) {
+                upToDate.recordFailed(item.file);
+            }
+            errors.add(errorMsg);
+            ConversionEvents.failed(item.file, errorMsg);
+            listener.fileFinished(item.file, false);
+        }
+    }
+
+    /**
+     * One pipeline stage: a pool of threads taking items from an input queue,
+     * processing them and putting them on the output queue.
+     */
+    private final class Stage {
+        final BlockingQueue<Item> input;
+        final BlockingQueue<Item> output;
+        final BatchState batch;
+        final StageFunction function;
+        final StageStats stats;
+        final AtomicInteger running;
+        final List<Thread> threads = new ArrayList<>();
+
+        Stage(String name, int threadCount, BlockingQueue<Item> input, BlockingQueue<Item> output,
+              BatchState batch, StageFunction function) {
+            this.input = input;
+            this.output = output;
+            this.batch = batch;
+            this.function = function;
+            this.stats = new StageStats(name, threadCount, input.remainingCapacity());
+            this.running = new AtomicInteger(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                Thread thread = new Thread(this::run, "pipeline-" + name + "-" + (t + 1));
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+        }
+
+        void start() {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+
+        void join() throws InterruptedException {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    stats.sampleQueueDepth(input.size());
+                    Item item = input.take();
+                    if (item == END) {
+                        // Let sibling threads see the marker too; the last one forwards it downstream
+                        input.put(END);
+                        return;
+                    }
+
+                    long start = System.nanoTime();
+                    boolean forward = process(item);
+                    stats.busyNanos.add(System.nanoTime() - start);
+                    stats.processed.increment();
+
+                    if (forward && output != null) {
+                        long waitStart = System.nanoTime();
+                        output.put(item);
+                        stats.blockedNanos.add(System.nanoTime() - waitStart);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // However this thread ends, the next stage must still see the end of the batch
+                if (running.decrementAndGet() == 0 && output != null) {
+                    forwardEnd();
+                }
+            }
+        }
+
+        private void forwardEnd() {
+            try {
+                output.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while ending pipeline stage {}", stats.name);
+            }
+        }
+
+        /**
+         * Process an item, counting it as failed on any exception or error, e.g. running out
+         * of memory in a decode or a native encoder that cannot be loaded.
+         */
+        private boolean process(Item item) {
+            try {
+                return function.process(item);
+            } catch (Throwable e) {
+                batch.failed(item, item.file.getName() + ": " + e.getMessage());
+                logger.error("Error during {} of {}", stats.name, item.file.getName(), e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Statistics for one pipeline stage.
+     */
+    public static class StageStats {
+        private final String name;
+        private final int threads;
+        private final int queueCapacity;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private volatile long wallNanos;
+
+        StageStats(String name, int threads, int queueCapacity) {
+            this.name = name;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+
+        void sampleQueueDepth(int depth) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getProcessed() {
+            return processed.sum();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        /**
+         * @return time spent waiting for room in the next stage's queue
+         */
+        public long getBlockedNanos() {
+            return blockedNanos.sum();
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        /**
+         * Fraction of the stage's thread time spent doing work during the batch.
+         *
+         * @return occupancy between 0 and 1
+         */
+        public double getOccupancy() {
+            long available = wallNanos * threads;
+            return available > 0 ? Math.min(1.0, (double) getBusyNanos() / available) : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: threads=%d, processed=%d, occupancy=%.0f%%, busy=%d ms, "
+                                 + "blocked=%d ms, max queue=%d/%d",
+                                 name, threads, getProcessed(), getOccupancy() * 100,
+                                 getBusyNanos() / 1_000_000, getBlockedNanos() / 1_000_000,
+                                 getMaxQueueDepth(), queueCapacity);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.imageconverter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Direct access to the pixel arrays of opaque images, bypassing the per-pixel
+ * ColorModel conversions of {@link BufferedImage#getRGB}.
+ * Supports the layouts produced by the JPEG, PNG and BMP decoders for opaque images
+ * (TYPE_3BYTE_BGR, TYPE_BYTE_GRAY) and the TYPE_INT_RGB images created by the resize code.
+ * Gray values are replicated into all channels, matching what Java2D {@code drawImage} does.
+ */
+final class RasterAccess {
+
+    private RasterAccess() {
+    }
+
+    /**
+     * Check whether rows of the image can be read directly.
+     *
+     * @param image the image
+     * @return true for opaque TYPE_INT_RGB, TYPE_3BYTE_BGR and TYPE_BYTE_GRAY images
+     */
+    static boolean isSupported(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+                return image.getRaster().getDataBuffer() instanceof DataBufferInt;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return image.getRaster().getDataBuffer() instanceof DataBufferByte
+                    && image.getSampleModel() instanceof ComponentSampleModel;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Read one row of an image as packed 0xRRGGBB pixels.
+     *
+     * @param image an image for which {@link #isSupported} is true
+     * @param y row index
+     * @param row destination, at least as long as the image width
+     */
+    static void readRow(BufferedImage image, int y, int[] row) {
+        Raster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        int width = image.getWidth();
+        int rowY = y - raster.getSampleModelTranslateY();
+        int firstX = -raster.getSampleModelTranslateX();
+
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+            int start = buffer.getOffset() + rowY * stride + firstX;
+            System.arraycopy(buffer.getData(), start, row, 0, width);
+            return;
+        }
+
+        ComponentSampleModel components = (ComponentSampleModel) sampleModel;
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int pixelStride = components.getPixelStride();
+        int index = raster.getDataBuffer().getOffset() + rowY * components.getScanlineStride()
+            + firstX * pixelStride;
+        int[] bandOffsets = components.getBandOffsets();
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            index += bandOffsets[0];
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                int gray = data[index] & 0xFF;
+                row[x] = (gray << 16) | (gray << 8) | gray;
+            }
+        } else {
+            int redOffset = bandOffsets[0];
+            int greenOffset = bandOffsets[1];
+            int blueOffset = bandOffsets[2];
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                row[x] = ((data[index + redOffset] & 0xFF) << 16)
+                    | ((data[index + greenOffset] & 0xFF) << 8)
+                    | (data[index + blueOffset] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Get the pixel array of a TYPE_INT_RGB image created with {@code new BufferedImage(...)}.
+     *
+     * @param image a freshly created TYPE_INT_RGB image
+     * @return the backing array, row by row without padding
+     */
+    static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
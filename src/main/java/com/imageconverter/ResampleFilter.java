@@ -0,0 +1,83 @@
+package com.imageconverter;
+
+/**
+ * Reconstruction filters for the {@link Resampler}.
+ * Each filter is a symmetric kernel with a support radius in source pixels (before scaling).
+ */
+public enum ResampleFilter {
+    /** Box filter, averages the source pixels covered by each destination pixel. */
+    BOX(0.5) {
+        @Override
+        double weight(double x) {
+            return x >= -0.5 && x < 0.5 ? 1.0 : 0.0;
+        }
+    },
+
+    /** Triangle (tent) filter. */
+    BILINEAR(1.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1.0 ? 1.0 - x : 0.0;
+        }
+    },
+
+    /** Mitchell-Netravali cubic with B = C = 1/3, a good compromise between sharpness and ringing. */
+    MITCHELL(2.0) {
+        @Override
+        double weight(double x) {
+            final double b = 1.0 / 3.0;
+            final double c = 1.0 / 3.0;
+            x = Math.abs(x);
+            if (x < 1.0) {
+                return ((12 - 9 * b - 6 * c) * x * x * x
+                    + (-18 + 12 * b + 6 * c) * x * x
+                    + (6 - 2 * b)) / 6.0;
+            }
+            if (x < 2.0) {
+                return ((-b - 6 * c) * x * x * x
+                    + (6 * b + 30 * c) * x * x
+                    + (-12 * b - 48 * c) * x
+                    + (8 * b + 24 * c)) / 6.0;
+            }
+            return 0.0;
+        }
+    },
+
+    /** Lanczos windowed sinc with three lobes, the sharpest of the filters. */
+    LANCZOS3(3.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1e-8) {
+                return 1.0;
+            }
+            if (x >= 3.0) {
+                return 0.0;
+            }
+            double pix = Math.PI * x;
+            return 3.0 * Math.sin(pix) * Math.sin(pix / 3.0) / (pix * pix);
+        }
+    };
+
+    private final double support;
+
+    ResampleFilter(double support) {
+        this.support = support;
+    }
+
+    /**
+     * @return kernel radius in source pixels at a scale of 1
+     */
+    double getSupport() {
+        return support;
+    }
+
+    /**
+     * Evaluate the kernel.
+     *
+     * @param x distance from the kernel centre in (scaled) source pixels
+     * @return kernel weight
+     */
+    abstract double weight(double x);
+}
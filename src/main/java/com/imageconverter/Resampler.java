@@ -0,0 +1,279 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Separable image resampler working directly on pixel arrays.
+ * Resizes horizontally into intermediate per-channel planes, then vertically into the destination,
+ * using precomputed fixed-point weight tables for the chosen {@link ResampleFilter}.
+ * Output is always TYPE_INT_RGB.
+ */
+public class Resampler {
+    private static final Logger logger = LoggerFactory.getLogger(Resampler.class);
+
+    /** Fixed-point precision of the weights. */
+    private static final int PRECISION_BITS = 14;
+    private static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+
+    private final ResampleFilter filter;
+
+    /**
+     * Create a resampler.
+     *
+     * @param filter reconstruction filter
+     */
+    public Resampler(ResampleFilter filter) {
+        this.filter = filter;
+    }
+
+    public ResampleFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Resize an image on the calling thread.
+     *
+     * @param source source image (any type; opaque decoder types are read without conversion)
+     * @param width destination width
+     * @param height destination height
+     * @return resized TYPE_INT_RGB image
+     */
+    public BufferedImage resize(BufferedImage source, int width, int height) {
+        return resize(source, width, height, false);
+    }
+
+    /**
+     * Resize an image, optionally splitting both passes into row bands on the common ForkJoinPool.
+     * Every row is computed independently, so the result is identical either way.
+     *
+     * @param source source image (any type; opaque decoder types are read without conversion)
+     * @param width destination width
+     * @param height destination height
+     * @param parallel true to process row bands in parallel
+     * @return resized TYPE_INT_RGB image
+     */
+    public BufferedImage resize(BufferedImage source, int width, int height, boolean parallel) {
+        long startTime = System.nanoTime();
+        BufferedImage input = RasterAccess.isSupported(source) ? source : toIntRgb(source);
+        int sourceWidth = input.getWidth();
+        int sourceHeight = input.getHeight();
+
+        WeightTable horizontal = new WeightTable(filter, sourceWidth, width);
+        WeightTable vertical = new WeightTable(filter, sourceHeight, height);
+
+        // Horizontal pass over the source rows the vertical pass will need
+        int firstRow = vertical.start[0];
+        int lastRow = vertical.start[height - 1] + vertical.count[height - 1];
+        Planes intermediate = new Planes(width * (lastRow - firstRow));
+        ParallelRows.forEach(firstRow, lastRow, parallel,
+            (from, to) -> resizeRows(input, horizontal, intermediate, firstRow, from, to));
+
+        BufferedImage destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = RasterAccess.pixels(destination);
+        ParallelRows.forEach(0, height, parallel,
+            (from, to) -> resizeColumns(intermediate, firstRow, vertical, pixels, width, from, to));
+
+        if (logger.isDebugEnabled()) {
+            double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            double megapixels = (double) sourceWidth * sourceHeight / 1_000_000.0;
+            logger.debug("Resampled {}x{} to {}x{} with {}{} in {} ms ({} MP/s)",
+                        sourceWidth, sourceHeight, width, height, filter, parallel ? " (parallel)" : "",
+                        Math.round(seconds * 1000), Math.round(megapixels / seconds));
+        }
+        return destination;
+    }
+
+    /**
+     * Horizontal pass: resample source rows [fromRow, toRow) into the intermediate planes.
+     *
+     * @param rowOffset source row stored at the first intermediate row
+     */
+    static void resizeRows(BufferedImage source, WeightTable table, Planes intermediate,
+                           int rowOffset, int fromRow, int toRow) {
+        int sourceWidth = source.getWidth();
+        int width = table.size;
+        int[] row = new int[sourceWidth];
+        int[] rowR = new int[sourceWidth];
+        int[] rowG = new int[sourceWidth];
+        int[] rowB = new int[sourceWidth];
+        int[] weights = table.weights;
+        int stride = table.stride;
+
+        for (int y = fromRow; y < toRow; y++) {
+            RasterAccess.readRow(source, y, row);
+            // Unpack once so every source pixel is not unpacked again for each overlapping tap
+            for (int x = 0; x < sourceWidth; x++) {
+                int pixel = row[x];
+                rowR[x] = (pixel >> 16) & 0xFF;
+                rowG[x] = (pixel >> 8) & 0xFF;
+                rowB[x] = pixel & 0xFF;
+            }
+
+            int out = (y - rowOffset) * width;
+            for (int x = 0; x < width; x++) {
+                int start = table.start[x];
+                int count = table.count[x];
+                int w = x * stride;
+                int r = ROUNDING;
+                int g = ROUNDING;
+                int b = ROUNDING;
+                for (int i = 0; i < count; i++) {
+                    int weight = weights[w + i];
+                    r += rowR[start + i] * weight;
+                    g += rowG[start + i] * weight;
+                    b += rowB[start + i] * weight;
+                }
+                intermediate.r[out + x] = (byte) clamp(r >> PRECISION_BITS);
+                intermediate.g[out + x] = (byte) clamp(g >> PRECISION_BITS);
+                intermediate.b[out + x] = (byte) clamp(b >> PRECISION_BITS);
+            }
+        }
+    }
+
+    /**
+     * Vertical pass: resample intermediate rows into destination rows [fromRow, toRow).
+     *
+     * @param rowOffset source row stored at the first intermediate row
+     */
+    static void resizeColumns(Planes intermediate, int rowOffset, WeightTable table, int[] destination,
+                              int width, int fromRow, int toRow) {
+        int[] weights = table.weights;
+        int stride = table.stride;
+        int[] r = new int[width];
+        int[] g = new int[width];
+        int[] b = new int[width];
+
+        for (int y = fromRow; y < toRow; y++) {
+            Arrays.fill(r, ROUNDING);
+            Arrays.fill(g, ROUNDING);
+            Arrays.fill(b, ROUNDING);
+            int start = table.start[y] - rowOffset;
+            int count = table.count[y];
+            int w = y * stride;
+
+            // Accumulate whole rows per tap: sequential reads and simple loops the JIT can vectorize
+            for (int i = 0; i < count; i++) {
+                int weight = weights[w + i];
+                int in = (start + i) * width;
+                accumulate(intermediate.r, in, weight, r);
+                accumulate(intermediate.g, in, weight, g);
+                accumulate(intermediate.b, in, weight, b);
+            }
+
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                destination[out + x] = pack(r[x], g[x], b[x]);
+            }
+        }
+    }
+
+    private static void accumulate(byte[] plane, int offset, int weight, int[] sums) {
+        for (int x = 0; x < sums.length; x++) {
+            sums[x] += (plane[offset + x] & 0xFF) * weight;
+        }
+    }
+
+    private static int pack(int r, int g, int b) {
+        return (clamp(r >> PRECISION_BITS) << 16) | (clamp(g >> PRECISION_BITS) << 8) | clamp(b >> PRECISION_BITS);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    /**
+     * Convert an unsupported image type (e.g. with alpha) to TYPE_INT_RGB,
+     * compositing the same way the Java2D resize path does.
+     */
+    private static BufferedImage toIntRgb(BufferedImage source) {
+        BufferedImage converted = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = converted.createGraphics();
+        g2d.drawImage(source, 0, 0, null);
+        g2d.dispose();
+        return converted;
+    }
+
+    /**
+     * Intermediate image stored as one byte plane per channel.
+     */
+    static final class Planes {
+        final byte[] r;
+        final byte[] g;
+        final byte[] b;
+
+        Planes(int size) {
+            this.r = new byte[size];
+            this.g = new byte[size];
+            this.b = new byte[size];
+        }
+    }
+
+    /**
+     * Precomputed filter weights for resampling one axis.
+     * For destination index i, source pixels start[i] .. start[i] + count[i] - 1 contribute
+     * with fixed-point weights stored at weights[i * stride ...].
+     */
+    static final class WeightTable {
+        final int size;
+        final int[] start;
+        final int[] count;
+        final int[] weights;
+        final int stride;
+
+        WeightTable(ResampleFilter filter, int sourceSize, int size) {
+            this.size = size;
+            double scale = (double) sourceSize / size;
+            // When downscaling, stretch the kernel so it covers all contributing source pixels
+            double filterScale = Math.max(1.0, scale);
+            double support = filter.getSupport() * filterScale;
+
+            this.stride = (int) Math.ceil(support) * 2 + 1;
+            this.start = new int[size];
+            this.count = new int[size];
+            this.weights = new int[size * stride];
+            double[] values = new double[stride];
+
+            for (int i = 0; i < size; i++) {
+                double centre = (i + 0.5) * scale;
+                int first = Math.max(0, (int) Math.floor(centre - support));
+                int last = Math.min(sourceSize, (int) Math.ceil(centre + support));
+                int n = Math.min(last - first, stride);
+
+                double total = 0.0;
+                for (int j = 0; j < n; j++) {
+                    values[j] = filter.weight((first + j + 0.5 - centre) / filterScale);
+                    total += values[j];
+                }
+                if (total == 0.0) {
+                    // Degenerate kernel (e.g. box between pixels): use the nearest source pixel
+                    int nearest = Math.min(sourceSize - 1, Math.max(first, (int) centre));
+                    first = nearest;
+                    n = 1;
+                    values[0] = 1.0;
+                    total = 1.0;
+                }
+
+                // Normalize to fixed point so the weights sum to exactly one
+                int fixedTotal = 0;
+                int largest = 0;
+                for (int j = 0; j < n; j++) {
+                    int weight = (int) Math.round(values[j] / total * (1 << PRECISION_BITS));
+                    weights[i * stride + j] = weight;
+                    fixedTotal += weight;
+                    if (weight > weights[i * stride + largest]) {
+                        largest = j;
+                    }
+                }
+                weights[i * stride + largest] += (1 << PRECISION_BITS) - fixedTotal;
+
+                start[i] = first;
+                count[i] = n;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.imageconverter;
+
+/**
+ * Algorithm used by {@link ImageConverter#resizeByShortEdge} to scale images.
+ */
+public enum ResizeMode {
+    /** One bicubic Java2D pass from the source straight to the target size. */
+    SINGLE_PASS(null),
+
+    /**
+     * Repeated 2x2 box halving until within 2x of the target, then a final bicubic pass.
+     * Faster and less aliased than a single pass for large reduction ratios.
+     */
+    PROGRESSIVE(null),
+
+    /** In-house separable resampler with a Lanczos3 filter. */
+    LANCZOS3(ResampleFilter.LANCZOS3),
+
+    /** In-house separable resampler with a Mitchell-Netravali filter. */
+    MITCHELL(ResampleFilter.MITCHELL),
+
+    /** In-house separable resampler with a bilinear (tent) filter. */
+    BILINEAR(ResampleFilter.BILINEAR),
+
+    /** In-house separable resampler with a box filter. */
+    BOX(ResampleFilter.BOX);
+
+    private final ResampleFilter filter;
+
+    ResizeMode(ResampleFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @return the resampler filter, or null for the Java2D based modes
+     */
+    public ResampleFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Parse a mode from its command-line name, e.g. "single-pass" or "lanczos3".
+     *
+     * @param name mode name (case-insensitive, '-' and '_' are equivalent)
+     * @return the resize mode
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static ResizeMode fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * @return the command-line name of this mode
+     */
+    public String getName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,54 @@
+package com.imageconverter;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Rates of a batch over a sliding window, as exposed by {@link ConversionMonitorMXBean}.
+ */
+public class Throughput {
+    private final double windowSeconds;
+    private final double imagesPerSecond;
+    private final double megapixelsPerSecond;
+    private final double bytesReadPerSecond;
+    private final double bytesWrittenPerSecond;
+
+    @ConstructorProperties({"windowSeconds", "imagesPerSecond", "megapixelsPerSecond",
+                            "bytesReadPerSecond", "bytesWrittenPerSecond"})
+    public Throughput(double windowSeconds, double imagesPerSecond, double megapixelsPerSecond,
+                      double bytesReadPerSecond, double bytesWrittenPerSecond) {
+        this.windowSeconds = windowSeconds;
+        this.imagesPerSecond = imagesPerSecond;
+        this.megapixelsPerSecond = megapixelsPerSecond;
+        this.bytesReadPerSecond = bytesReadPerSecond;
+        this.bytesWrittenPerSecond = bytesWrittenPerSecond;
+    }
+
+    /**
+     * @return seconds the rates were measured over; shorter than the window early in a batch
+     */
+    public double getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * @return converted and failed images per second, not counting skipped files
+     */
+    public double getImagesPerSecond() {
+        return imagesPerSecond;
+    }
+
+    /**
+     * @return source megapixels decoded per second
+     */
+    public double getMegapixelsPerSecond() {
+        return megapixelsPerSecond;
+    }
+
+    public double getBytesReadPerSecond() {
+        return bytesReadPerSecond;
+    }
+
+    public double getBytesWrittenPerSecond() {
+        return bytesWrittenPerSecond;
+    }
+}
@@ -0,0 +1,95 @@
+package com.imageconverter;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener counting finished files and measuring throughput, for batches without
+ * a known end such as a watched hot folder. Optionally forwards every callback.
+ */
+public class ThroughputCounter implements ConversionListener {
+    private final ConversionListener delegate;
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final LongAdder converted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private long sampleNanos = System.nanoTime();
+    private long sampleCount;
+
+    public ThroughputCounter() {
+        this(null);
+    }
+
+    /**
+     * Create a counter that forwards callbacks.
+     *
+     * @param delegate listener receiving every callback after counting, may be null
+     */
+    public ThroughputCounter(ConversionListener delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void fileStarted(File file) {
+        inProgress.incrementAndGet();
+        if (delegate != null) {
+            delegate.fileStarted(file);
+        }
+    }
+
+    @Override
+    public void fileFinished(File file, boolean success) {
+        inProgress.decrementAndGet();
+        (success ? converted : failed).increment();
+        if (delegate != null) {
+            delegate.fileFinished(file, success);
+        }
+    }
+
+    @Override
+    public void fileSkipped(File file) {
+        skipped.increment();
+        if (delegate != null) {
+            delegate.fileSkipped(file);
+        }
+    }
+
+    public int getInProgress() {
+        return inProgress.get();
+    }
+
+    public long getConverted() {
+        return converted.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return converted and failed files so far
+     */
+    public long getCompleted() {
+        return converted.sum() + failed.sum();
+    }
+
+    /**
+     * Measure throughput since the previous call (or since creation).
+     *
+     * @return completed files per second over the sampling interval
+     */
+    public synchronized double sampleRate() {
+        long now = System.nanoTime();
+        long count = getCompleted();
+        double seconds = (now - sampleNanos) / 1_000_000_000.0;
+        double rate = seconds > 0 ? (count - sampleCount) / seconds : 0;
+        sampleNanos = now;
+        sampleCount = count;
+        return rate;
+    }
+}
@@ -0,0 +1,220 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which files of an incremental batch can be skipped, using the
+ * {@link ConversionManifest} of each source directory.
+ * A file is up to date when its manifest entry was written with the current settings,
+ * its WebP output still exists with the recorded size, and the source has the recorded size
+ * and either the recorded modification time or, when only the time differs
+ * (e.g. after copying between shares), the recorded content hash.
+ * Sources are hashed only when their entry is recorded, after a successful conversion, while
+ * the decoded file is still in the page cache; an unchanged source keeps its previous hash.
+ * Manifests are written back every {@value #SAVE_EVERY} conversions or
+ * {@value #SAVE_INTERVAL_SECONDS} seconds, so a long watch or a killed batch keeps most of
+ * its progress, and at the end of the batch, also when it was cancelled.
+ */
+public class UpToDateChecker {
+    private static final Logger logger = LoggerFactory.getLogger(UpToDateChecker.class);
+
+    private static final int SAVE_EVERY = 100;
+    private static final long SAVE_INTERVAL_SECONDS = 30;
+
+    private final String fingerprint;
+    private final boolean skipUpToDate;
+    private final Map<File, ConversionManifest> manifests = new ConcurrentHashMap<>();
+    private final AtomicInteger unsaved = new AtomicInteger();
+    private final AtomicLong lastSaveNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * Create a checker for one batch.
+     *
+     * @param fingerprint settings fingerprint of the batch, see {@link ImageConverter#getSettingsFingerprint}
+     * @param skipUpToDate false to convert every file (forced rebuild) while still recording the manifest
+     */
+    public UpToDateChecker(String fingerprint, boolean skipUpToDate) {
+        this.fingerprint = fingerprint;
+        this.skipUpToDate = skipUpToDate;
+    }
+
+    /**
+     * Check whether a source file can be skipped.
+     *
+     * @param source the source image
+     * @return true if the existing output is up to date with the source and the settings
+     */
+    public boolean shouldSkip(File source) {
+        if (!skipUpToDate) {
+            return false;
+        }
+        ConversionManifest manifest = manifestOf(source);
+        ConversionManifest.Entry entry = manifest.get(source.getName());
+        if (entry == null || !fingerprint.equals(entry.getFingerprint())) {
+            return false;
+        }
+        // One stat for each of the source and the output
+        BasicFileAttributes sourceAttributes = attributesOf(source);
+        BasicFileAttributes outputAttributes = attributesOf(ImageConverter.getOutputFile(source));
+        if (sourceAttributes == null || outputAttributes == null || !outputAttributes.isRegularFile()
+                || outputAttributes.size() != entry.getOutputSize() || sourceAttributes.size() != entry.getSize()) {
+            return false;
+        }
+
+        long lastModified = sourceAttributes.lastModifiedTime().toMillis();
+        if (lastModified == entry.getLastModified()) {
+            return true;
+        }
+        try {
+            if (entry.getHash() == ConversionManifest.NO_HASH || FastHash.hash(source) != entry.getHash()) {
+                return false;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not hash {}", source, e);
+            return false;
+        }
+        logger.debug("Content of {} unchanged despite new modification time", source.getName());
+        manifest.put(source.getName(), entry.withLastModified(lastModified));
+        return true;
+    }
+
+    /**
+     * Capture the size and modification time of a source before it is decoded, so the
+     * manifest describes the content its output was made from even if the source is
+     * changed during the conversion. Only the file's attributes are read, in one stat.
+     *
+     * @param source the source image
+     * @return the state of the source, or null if it cannot be read
+     */
+    public SourceState captureSource(File source) {
+        BasicFileAttributes attributes = attributesOf(source);
+        return attributes != null ? new SourceState(attributes) : null;
+    }
+
+    /**
+     * Record a successfully converted file. The content hash is taken over from the previous
+     * entry if the source still has its recorded size and modification time. Otherwise the
+     * source is hashed now, unless this is a forced rebuild, whose entries only match an
+     * unchanged modification time. A source that changed since it was captured is not recorded.
+     *
+     * @param source the source image
+     * @param state state of the source captured before it was decoded; null records nothing
+     * @param outputSize size of the written WebP file
+     */
+    public void recordConverted(File source, SourceState state, long outputSize) {
+        ConversionManifest manifest = manifestOf(source);
+        OptionalLong hash = state != null ? hashOf(source, state, manifest.get(source.getName())) : OptionalLong.empty();
+        if (hash.isEmpty()) {
+            manifest.remove(source.getName());
+            return;
+        }
+        manifest.put(source.getName(), new ConversionManifest.Entry(
+            state.size, state.lastModified, hash.getAsLong(), fingerprint, outputSize));
+        saveIfDue();
+    }
+
+    /**
+     * @return the content hash to record, empty if the source cannot be recorded
+     */
+    private OptionalLong hashOf(File source, SourceState state, ConversionManifest.Entry previous) {
+        if (previous != null && previous.getHash() != ConversionManifest.NO_HASH
+                && previous.getSize() == state.size && previous.getLastModified() == state.lastModified) {
+            return OptionalLong.of(previous.getHash());
+        }
+        if (!skipUpToDate) {
+            return OptionalLong.of(ConversionManifest.NO_HASH);
+        }
+        try {
+            long hash = FastHash.hash(source);
+            SourceState now = captureSource(source);
+            if (now == null || now.size != state.size || now.lastModified != state.lastModified) {
+                logger.debug("{} changed during its conversion, it will be converted again next time", source);
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(hash);
+        } catch (IOException e) {
+            logger.warn("Could not hash {}, it will be converted again next time", source, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Record a file that failed to convert. Its entry is dropped,
+     * so an outdated output left next to it is not mistaken for a current one.
+     *
+     * @param source the source image
+     */
+    public void recordFailed(File source) {
+        manifestOf(source).remove(source.getName());
+    }
+
+    /**
+     * Write every manifest that changed during the batch.
+     */
+    public void save() {
+        unsaved.set(0);
+        lastSaveNanos.set(System.nanoTime());
+        for (ConversionManifest manifest : manifests.values()) {
+            manifest.save();
+        }
+    }
+
+    /**
+     * Save on the thread recording the conversion that makes a save due.
+     */
+    private void saveIfDue() {
+        long last = lastSaveNanos.get();
+        boolean due = unsaved.incrementAndGet() >= SAVE_EVERY
+            || System.nanoTime() - last >= SAVE_INTERVAL_SECONDS * 1_000_000_000L;
+        if (due && lastSaveNanos.compareAndSet(last, System.nanoTime())) {
+            logger.debug("Saving manifests after {} conversions", unsaved.get());
+            save();
+        }
+    }
+
+    /**
+     * @return the attributes of a file, or null if it does not exist or cannot be read
+     */
+    private static BasicFileAttributes attributesOf(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ConversionManifest manifestOf(File source) {
+        return manifests.computeIfAbsent(source.getAbsoluteFile().getParentFile(), ConversionManifest::load);
+    }
+
+    /**
+     * Size and modification time of a source at the start of its conversion.
+     */
+    public static final class SourceState {
+        private final long size;
+        private final long lastModified;
+
+        SourceState(BasicFileAttributes attributes) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * @return size of the source in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.imageconverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Pool of configured WebP writers.
+ * The SPI registry lookup is done once; writers and their write params are created on demand,
+ * reset after each image and handed out again, so per-image setup cost is close to zero.
+ * A pooled writer is used by one thread at a time.
+ */
+public class WebPWriterPool {
+    private static final Logger logger = LoggerFactory.getLogger(WebPWriterPool.class);
+
+    private final float quality;
+    private final ConcurrentLinkedDeque<PooledWriter> idle = new ConcurrentLinkedDeque<>();
+    private volatile ImageWriterSpi provider;
+    private volatile boolean lookedUp;
+
+    /**
+     * Create a writer pool.
+     *
+     * @param quality WebP compression quality (0.0 - 1.0)
+     */
+    public WebPWriterPool(float quality) {
+        this.quality = quality;
+    }
+
+    /**
+     * Borrow a configured writer. It must be returned with {@link #release(PooledWriter)}
+     * or discarded with {@link #discard(PooledWriter)}.
+     *
+     * @return a writer, or null if no WebP writer is available
+     * @throws IOException if a new writer instance cannot be created
+     */
+    public PooledWriter borrow() throws IOException {
+        PooledWriter writer = idle.pollFirst();
+        if (writer != null) {
+            return writer;
+        }
+
+        ImageWriterSpi spi = getProvider();
+        if (spi == null) {
+            return null;
+        }
+        logger.debug("Creating new pooled WebP writer");
+        return new PooledWriter(spi.createWriterInstance(), quality);
+    }
+
+    /**
+     * Return a writer after a successful write so it can be reused.
+     *
+     * @param writer the borrowed writer
+     */
+    public void release(PooledWriter writer) {
+        writer.writer.reset();
+        idle.offerFirst(writer);
+    }
+
+    /**
+     * Dispose a writer that failed instead of returning it to the pool.
+     *
+     * @param writer the borrowed writer
+     */
+    public void discard(PooledWriter writer) {
+        writer.writer.dispose();
+    }
+
+    /**
+     * Dispose all idle writers.
+     */
+    public void clear() {
+        PooledWriter writer;
+        while ((writer = idle.pollFirst()) != null) {
+            writer.writer.dispose();
+        }
+    }
+
+    /**
+     * Look up the WebP writer provider once.
+     */
+    private ImageWriterSpi getProvider() {
+        if (!lookedUp) {
+            synchronized (this) {
+                if (!lookedUp) {
+                    Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType("image/webp");
+                    if (writers.hasNext()) {
+                        ImageWriter writer = writers.next();
+                        provider = writer.getOriginatingProvider();
+                        writer.dispose();
+                    }
+                    lookedUp = true;
+                }
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * A WebP writer together with its configured write param.
+     */
+    public static final class PooledWriter {
+        private final ImageWriter writer;
+        private final ImageWriteParam writeParam;
+
+        private PooledWriter(ImageWriter writer, float quality) {
+            this.writer = writer;
+            this.writeParam = writer.getDefaultWriteParam();
+
+            // Set compression mode and type for WebP
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] compressionTypes = writeParam.getCompressionTypes();
+            if (compressionTypes != null && compressionTypes.length > 0) {
+                writeParam.setCompressionType(compressionTypes[0]);
+            }
+            writeParam.setCompressionQuality(quality);
+        }
+
+        public ImageWriter getWriter() {
+            return writer;
+        }
+
+        public ImageWriteParam getWriteParam() {
+            return writeParam;
+        }
+    }
+}
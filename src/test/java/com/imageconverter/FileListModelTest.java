@@ -0,0 +1,85 @@
+package com.imageconverter;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileListModelTest {
+
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // Already started by another test
+            started.countDown();
+        }
+        started.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void statusChangesOfSeveralRowsInOnePulseRefreshEveryCell() throws Exception {
+        File directory = new File("images");
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(new File(directory, "image" + i + ".png"));
+        }
+        FileListModel model = new FileListModel(directory);
+        model.postFiles(files);
+
+        List<FileListCell> cells = onFxThread(() -> {
+            ListView<Integer> listView = new ListView<>(model);
+            List<FileListCell> created = new ArrayList<>();
+            for (int row = 0; row < files.size(); row++) {
+                FileListCell cell = new FileListCell();
+                cell.updateListView(listView);
+                cell.updateIndex(row);
+                created.add(cell);
+            }
+            return created;
+        });
+
+        // Posted from the FX thread, so all of them are applied by the same flush
+        onFxThread(() -> {
+            model.postStatus(files.get(1), FileStatus.DONE);
+            model.postStatus(files.get(5), FileStatus.FAILED);
+            model.postFiles(List.of(new File(directory, "image10.png")));
+            return null;
+        });
+        onFxThread(() -> null);
+
+        assertEquals("Done", onFxThread(() -> statusText(cells.get(1))));
+        assertEquals("Failed", onFxThread(() -> statusText(cells.get(5))));
+        assertEquals("", onFxThread(() -> statusText(cells.get(3))));
+        assertEquals(11, model.size());
+    }
+
+    private static String statusText(FileListCell cell) {
+        return ((Label) cell.getGraphic().lookup(".file-status")).getText();
+    }
+
+    private static <V> V onFxThread(Callable<V> callable) throws Exception {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(callable.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+}
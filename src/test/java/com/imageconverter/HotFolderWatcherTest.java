@@ -0,0 +1,61 @@
+package com.imageconverter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotFolderWatcherTest {
+    private static final long SETTLE_MILLIS = 100;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    File directory;
+
+    private HotFolderWatcher watcher;
+
+    @AfterEach
+    void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void fileThatStaysEmptyIsDroppedAndComesBackWhenWritten() throws Exception {
+        List<File> published = new CopyOnWriteArrayList<>();
+        watcher = new HotFolderWatcher(directory, false, SETTLE_MILLIS);
+        watcher.start(published::addAll);
+
+        File placeholder = new File(directory, "upload.png");
+        assertTrue(placeholder.createNewFile());
+        assertTrue(waitFor(() -> watcher.getSettlingCount() == 1), "empty file was not picked up");
+        assertTrue(waitFor(() -> watcher.getSettlingCount() == 0), "empty file was never dropped");
+        assertTrue(published.isEmpty());
+
+        Files.write(placeholder.toPath(), new byte[] {1, 2, 3});
+        assertTrue(waitFor(() -> !published.isEmpty()), "written file was not published");
+        assertEquals(List.of(placeholder.getAbsoluteFile()), published);
+        assertEquals(0, watcher.getSettlingCount());
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
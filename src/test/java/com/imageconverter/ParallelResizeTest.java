@@ -0,0 +1,105 @@
+package com.imageconverter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The engines split resizes into bands once fewer files than cores remain, also when the
+ * feed is only closed after the batch started. Surefire runs with 4 active processors.
+ */
+class ParallelResizeTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void batchConverterResizesSmallStreamedBatchInParallel() throws Exception {
+        GatedConverter converter = new GatedConverter();
+        assertEquals(2, convertStreamed(new BatchConverter(4, converter), converter));
+    }
+
+    @Test
+    void pipelineConverterResizesSmallStreamedBatchInParallel() throws Exception {
+        GatedConverter converter = new GatedConverter();
+        PipelineConverter engine = new PipelineConverter(PipelineConfig.forThreads(4), converter);
+        assertEquals(2, convertStreamed(engine, converter));
+    }
+
+    /**
+     * Convert two files from a feed that is closed only once the engine is decoding.
+     *
+     * @return number of resizes split into bands
+     */
+    private long convertStreamed(ConversionEngine engine, GatedConverter converter) throws Exception {
+        assertTrue(BatchConverter.defaultThreadCount() > 2, "needs more than 2 processors");
+        FileFeed feed = new FileFeed();
+        feed.addAll(List.of(image("a.png"), image("b.png")));
+        CompletableFuture<ConversionResult> result =
+            CompletableFuture.supplyAsync(() -> engine.convert(feed, 40, new ConversionListener() {
+                @Override
+                public void fileStarted(File file) {
+                }
+
+                @Override
+                public void fileFinished(File file, boolean success) {
+                }
+            }));
+
+        assertTrue(converter.loading.await(10, TimeUnit.SECONDS), "engine did not start decoding");
+        feed.close();
+        converter.scanFinished.countDown();
+
+        ConversionResult finished = result.get(30, TimeUnit.SECONDS);
+        assertEquals(2, finished.getSuccessCount());
+        return finished.getMetrics().getParallelResizes();
+    }
+
+    private File image(String name) throws IOException {
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 7) << 16 | (y * 5) << 8 | (x ^ y));
+            }
+        }
+        File file = new File(directory, name);
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    /**
+     * Holds every decode until the test has closed the feed, as a scan finishing late would.
+     */
+    private static final class GatedConverter extends ImageConverter {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch scanFinished = new CountDownLatch(1);
+
+        GatedConverter() {
+            setResizeMode(ResizeMode.BILINEAR);
+            setOutputSizeModel(new OutputSizeModel(null));
+        }
+
+        @Override
+        public BufferedImage loadImage(File file, int shortEdgeSize, long fileSize) {
+            loading.countDown();
+            try {
+                scanFinished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return super.loadImage(file, shortEdgeSize, fileSize);
+        }
+    }
+}
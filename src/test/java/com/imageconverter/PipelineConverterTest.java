@@ -0,0 +1,63 @@
+package com.imageconverter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PipelineConverterTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void errorInAStageFailsTheFileInsteadOfHangingTheBatch() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            files.add(image("image" + i + ".png"));
+        }
+        ImageConverter converter = new ImageConverter() {
+            @Override
+            public byte[] encodeWebP(BufferedImage image, File source) {
+                if (source.getName().equals("image1.png")) {
+                    throw new LinkageError("encoder not available");
+                }
+                return super.encodeWebP(image, source);
+            }
+        };
+        converter.setOutputSizeModel(new OutputSizeModel(null));
+        PipelineConverter engine = new PipelineConverter(PipelineConfig.forThreads(2), converter);
+
+        ConversionResult result = assertTimeoutPreemptively(Duration.ofSeconds(30),
+            () -> engine.convert(FileFeed.of(files), 0, new ConversionListener() {
+                @Override
+                public void fileStarted(File file) {
+                }
+
+                @Override
+                public void fileFinished(File file, boolean success) {
+                }
+            }));
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(1, result.getFailCount());
+        assertFalse(ImageConverter.getOutputFile(files.get(1)).exists());
+    }
+
+    private File image(String name) throws IOException {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        File file = new File(directory, name);
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+}